@@ -0,0 +1,31 @@
+package com.moandjiezana.dbutilsjpa.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line, with the same options as JMH's own main class. The GC profiler is always added, so that the results
+ * include allocation rates.
+ *
+ * <pre><code>java -jar benchmarks/target/benchmarks.jar MappingBenchmark -p entity=WideFieldEntity</code></pre>
+ */
+public class BenchmarkMain {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    if (commandLineOptions.shouldHelp()) {
+      commandLineOptions.showHelp();
+      return;
+    }
+
+    Runner runner = new Runner(new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class).build());
+    if (commandLineOptions.shouldList()) {
+      runner.list();
+      return;
+    }
+
+    runner.run();
+  }
+}
@@ -0,0 +1,167 @@
+package com.moandjiezana.dbutilsjpa.benchmarks;
+
+import com.moandjiezana.dbutilsjpa.benchmarks.entities.NarrowFieldEntity;
+import com.moandjiezana.dbutilsjpa.benchmarks.entities.NarrowPropertyEntity;
+import com.moandjiezana.dbutilsjpa.benchmarks.entities.WideFieldEntity;
+import com.moandjiezana.dbutilsjpa.benchmarks.entities.WidePropertyEntity;
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import org.h2.tools.SimpleResultSet;
+
+/**
+ * Entities and rows shared by the benchmarks. Rows are generated from the entities' metadata, so that every entity is benchmarked against the same kind of data.
+ */
+final class Fixtures {
+
+  private static final long EPOCH = 1420070400000L;
+
+  /**
+   * @param entity The simple name of one of the benchmark entities, as used in @Param values.
+   */
+  static Class<?> entityClass(String entity) {
+    if (entity.equals("NarrowFieldEntity")) {
+      return NarrowFieldEntity.class;
+    } else if (entity.equals("WideFieldEntity")) {
+      return WideFieldEntity.class;
+    } else if (entity.equals("NarrowPropertyEntity")) {
+      return NarrowPropertyEntity.class;
+    } else if (entity.equals("WidePropertyEntity")) {
+      return WidePropertyEntity.class;
+    }
+
+    throw new IllegalArgumentException("Unknown benchmark entity " + entity);
+  }
+
+  /**
+   * @return An in-memory ResultSet with one column per property of entityClass and rows rows, ids starting at 1. Can be rewound with beforeFirst().
+   */
+  static SimpleResultSet resultSet(Class<?> entityClass, int rows) {
+    EntityMetadata metadata = EntityMetadata.of(entityClass);
+    PropertyDescriptorWrapper[] properties = metadata.getPersistentProperties();
+
+    SimpleResultSet resultSet = new SimpleResultSet();
+    resultSet.setAutoClose(false);
+    for (PropertyDescriptorWrapper property : properties) {
+      resultSet.addColumn(property.getColumnName(), sqlType(property.getPropertyType()), 0, 0);
+    }
+
+    for (long id = 1; id <= rows; id++) {
+      Object[] row = new Object[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+        row[i] = properties[i] == metadata.getIdProperty() ? Long.valueOf(id) : value(properties[i].getPropertyType(), id);
+      }
+      resultSet.addRow(row);
+    }
+
+    return resultSet;
+  }
+
+  /**
+   * @return A new instance of entityClass whose properties other than the id are set to values derived from i.
+   */
+  static <T> T newEntity(Class<T> entityClass, long i) {
+    EntityMetadata metadata = EntityMetadata.of(entityClass);
+    T entity = entityClass.cast(metadata.newInstance());
+
+    for (PropertyDescriptorWrapper property : metadata.getPersistentProperties()) {
+      if (property != metadata.getIdProperty()) {
+        property.set(entity, value(property.getPropertyType(), i));
+      }
+    }
+
+    return entity;
+  }
+
+  static String createTable(Class<?> entityClass) {
+    EntityMetadata metadata = EntityMetadata.of(entityClass);
+    StringBuilder sql = new StringBuilder("CREATE TABLE ").append(metadata.getTableName()).append("(");
+
+    for (PropertyDescriptorWrapper property : metadata.getPersistentProperties()) {
+      sql.append(property.getColumnName()).append(" ");
+      if (property == metadata.getIdProperty()) {
+        sql.append("BIGINT AUTO_INCREMENT PRIMARY KEY");
+      } else {
+        sql.append(columnDefinition(property.getPropertyType()));
+      }
+      sql.append(", ");
+    }
+    sql.setLength(sql.length() - 2);
+
+    return sql.append(")").toString();
+  }
+
+  private static Object value(Class<?> type, long i) {
+    if (type == String.class) {
+      return "value " + i;
+    } else if (type == int.class || type == Integer.class) {
+      return Integer.valueOf((int) i);
+    } else if (type == long.class || type == Long.class) {
+      return Long.valueOf(i);
+    } else if (type == double.class || type == Double.class) {
+      return Double.valueOf(i / 4d);
+    } else if (type == boolean.class || type == Boolean.class) {
+      return Boolean.valueOf(i % 2 == 0);
+    } else if (type == BigDecimal.class) {
+      return BigDecimal.valueOf(i, 2);
+    } else if (type == Date.class) {
+      return new Date(EPOCH + i * 86400000L);
+    } else if (type == Timestamp.class) {
+      return new Timestamp(EPOCH + i * 1000L);
+    }
+
+    throw new IllegalArgumentException("No benchmark value for " + type.getName());
+  }
+
+  private static int sqlType(Class<?> type) {
+    if (type == String.class) {
+      return Types.VARCHAR;
+    } else if (type == int.class || type == Integer.class) {
+      return Types.INTEGER;
+    } else if (type == long.class || type == Long.class) {
+      return Types.BIGINT;
+    } else if (type == double.class || type == Double.class) {
+      return Types.DOUBLE;
+    } else if (type == boolean.class || type == Boolean.class) {
+      return Types.BOOLEAN;
+    } else if (type == BigDecimal.class) {
+      return Types.DECIMAL;
+    } else if (type == Date.class) {
+      return Types.DATE;
+    } else if (type == Timestamp.class) {
+      return Types.TIMESTAMP;
+    }
+
+    throw new IllegalArgumentException("No SQL type for " + type.getName());
+  }
+
+  private static String columnDefinition(Class<?> type) {
+    String notNull = type.isPrimitive() ? " NOT NULL" : "";
+
+    switch (sqlType(type)) {
+      case Types.VARCHAR:
+        return "VARCHAR(255)";
+      case Types.INTEGER:
+        return "INT" + notNull;
+      case Types.BIGINT:
+        return "BIGINT" + notNull;
+      case Types.DOUBLE:
+        return "DOUBLE" + notNull;
+      case Types.BOOLEAN:
+        return "BOOLEAN" + notNull;
+      case Types.DECIMAL:
+        return "DECIMAL(19, 2)";
+      case Types.DATE:
+        return "DATE";
+      default:
+        return "TIMESTAMP";
+    }
+  }
+
+  private Fixtures() {}
+}
@@ -0,0 +1,66 @@
+package com.moandjiezana.dbutilsjpa.benchmarks;
+
+import com.moandjiezana.dbutilsjpa.Entities;
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads the JPA mapping of entity classes. {@link EntityMetadata#of(Class)} is the cached lookup done by every operation, the PropertyDescriptorWrapper
+ * benchmarks the introspection it does once per class. The JavaBeans Introspector keeps its own cache, so property access is not measured cold.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntrospectionBenchmark {
+
+  @Param({ "NarrowFieldEntity", "WideFieldEntity", "NarrowPropertyEntity", "WidePropertyEntity" })
+  public String entity;
+
+  private Class<?> entityClass;
+  private boolean fieldAccess;
+
+  @Setup
+  public void setUp() {
+    entityClass = Fixtures.entityClass(entity);
+    fieldAccess = EntityMetadata.of(entityClass).getIdAccessor() instanceof Field;
+  }
+
+  @Benchmark
+  public EntityMetadata entityMetadata() {
+    return EntityMetadata.of(entityClass);
+  }
+
+  @Benchmark
+  public PropertyDescriptorWrapper[] propertyDescriptors() {
+    return fieldAccess ? PropertyDescriptorWrapper.getPropertyDescriptorsFromFields(entityClass) : PropertyDescriptorWrapper.getPropertyDescriptorsFromMethods(entityClass);
+  }
+
+  @Benchmark
+  public String tableName() {
+    return Entities.getName(entityClass);
+  }
+
+  @Benchmark
+  public AccessibleObject idAccessor() {
+    return Entities.getIdAccessor(entityClass);
+  }
+}
@@ -0,0 +1,128 @@
+package com.moandjiezana.dbutilsjpa.benchmarks;
+
+import com.moandjiezana.dbutilsjpa.JpaQueryRunner;
+import com.moandjiezana.dbutilsjpa.StatementCachingQueryRunner;
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs JpaQueryRunner operations against an in-memory H2 database holding {@link #ROWS} rows. Each thread gets its own database.
+ *
+ * The DataSource runner takes a connection from a pool for each operation and prepares a new statement, StatementCaching reuses one connection and its statements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JpaQueryRunnerBenchmark {
+
+  private static final int ROWS = 1000;
+  private static final int QUERY_ALL_IDS = 100;
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+
+  @Param({ "NarrowFieldEntity", "WideFieldEntity", "NarrowPropertyEntity", "WidePropertyEntity" })
+  public String entity;
+
+  @Param({ "DataSource", "StatementCaching" })
+  public String queryRunner;
+
+  private Class<?> entityClass;
+  private PropertyDescriptorWrapper idProperty;
+  private JdbcConnectionPool connectionPool;
+  private Connection connection;
+  private StatementCachingQueryRunner statementCachingQueryRunner;
+  private JpaQueryRunner jpaQueryRunner;
+  private Object existingEntity;
+  private final List<Long> ids = new ArrayList<Long>();
+  private long nextId;
+
+  @Setup
+  public void setUp() throws SQLException {
+    entityClass = Fixtures.entityClass(entity);
+    idProperty = EntityMetadata.of(entityClass).getIdProperty();
+    connectionPool = JdbcConnectionPool.create("jdbc:h2:mem:benchmark" + DATABASES.incrementAndGet(), "sa", "");
+    connection = connectionPool.getConnection();
+
+    QueryRunner dataSourceQueryRunner = new QueryRunner(connectionPool);
+    dataSourceQueryRunner.update(Fixtures.createTable(entityClass));
+    JpaQueryRunner loader = new JpaQueryRunner(dataSourceQueryRunner);
+    for (int i = 1; i <= ROWS; i++) {
+      loader.save(Fixtures.newEntity(entityClass, i));
+    }
+    for (long id = 1; id <= QUERY_ALL_IDS; id++) {
+      ids.add(Long.valueOf(id * (ROWS / QUERY_ALL_IDS)));
+    }
+
+    if (queryRunner.equals("DataSource")) {
+      jpaQueryRunner = loader;
+    } else if (queryRunner.equals("StatementCaching")) {
+      statementCachingQueryRunner = new StatementCachingQueryRunner(connection);
+      jpaQueryRunner = new JpaQueryRunner(statementCachingQueryRunner);
+    } else {
+      throw new IllegalArgumentException("Unknown query runner " + queryRunner);
+    }
+
+    existingEntity = jpaQueryRunner.query(entityClass, Long.valueOf(1));
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    if (statementCachingQueryRunner != null) {
+      statementCachingQueryRunner.close();
+    }
+    connection.close();
+    connectionPool.dispose();
+  }
+
+  @Benchmark
+  public Object query() {
+    nextId = nextId % ROWS + 1;
+
+    return jpaQueryRunner.query(entityClass, Long.valueOf(nextId));
+  }
+
+  @Benchmark
+  public List<?> queryAll() {
+    return jpaQueryRunner.queryAll(entityClass, ids);
+  }
+
+  @Benchmark
+  public int update() {
+    return jpaQueryRunner.save(existingEntity);
+  }
+
+  /**
+   * Inserts are followed by a delete, so that the table keeps the same size during the benchmark.
+   */
+  @Benchmark
+  public int insertThenDelete() {
+    Object newEntity = Fixtures.newEntity(entityClass, ROWS + 1);
+    jpaQueryRunner.save(newEntity);
+
+    return jpaQueryRunner.delete(entityClass, idProperty.get(newEntity));
+  }
+}
@@ -0,0 +1,84 @@
+package com.moandjiezana.dbutilsjpa.benchmarks;
+
+import com.moandjiezana.dbutilsjpa.JpaBeanProcessor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Maps rows to entities with {@link JpaBeanProcessor#toBean} and {@link JpaBeanProcessor#toBeanList}. Rows are read from an in-memory ResultSet, so only the
+ * mapping is measured, not the driver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+  @State(Scope.Thread)
+  public static class SingleRow {
+
+    @Param({ "NarrowFieldEntity", "WideFieldEntity", "NarrowPropertyEntity", "WidePropertyEntity" })
+    public String entity;
+
+    Class<?> entityClass;
+    final JpaBeanProcessor beanProcessor = new JpaBeanProcessor();
+    SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+      entityClass = Fixtures.entityClass(entity);
+      resultSet = Fixtures.resultSet(entityClass, 1);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ManyRows {
+
+    @Param({ "NarrowFieldEntity", "WideFieldEntity", "NarrowPropertyEntity", "WidePropertyEntity" })
+    public String entity;
+
+    @Param({ "10", "1000" })
+    public int rows;
+
+    Class<?> entityClass;
+    final JpaBeanProcessor beanProcessor = new JpaBeanProcessor();
+    SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+      entityClass = Fixtures.entityClass(entity);
+      resultSet = Fixtures.resultSet(entityClass, rows);
+    }
+  }
+
+  @Benchmark
+  public Object toBean(SingleRow state) throws SQLException {
+    state.resultSet.beforeFirst();
+    state.resultSet.next();
+
+    return state.beanProcessor.toBean(state.resultSet, state.entityClass);
+  }
+
+  @Benchmark
+  public List<?> toBeanList(ManyRows state) throws SQLException {
+    state.resultSet.beforeFirst();
+
+    return state.beanProcessor.toBeanList(state.resultSet, state.entityClass);
+  }
+}
@@ -0,0 +1,83 @@
+package com.moandjiezana.dbutilsjpa.benchmarks;
+
+import com.moandjiezana.dbutilsjpa.SqlWriter;
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Generates statements with {@link SqlWriter}. The cached benchmarks measure what each operation of a JpaQueryRunner pays, the generated ones what the first
+ * operation on an entity class pays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SqlWriterBenchmark {
+
+  @Param({ "NarrowFieldEntity", "WideFieldEntity", "NarrowPropertyEntity", "WidePropertyEntity" })
+  public String entity;
+
+  private Class<?> entityClass;
+  private String[] changedColumns;
+  private final SqlWriter sqlWriter = new SqlWriter();
+
+  @Setup
+  public void setUp() {
+    entityClass = Fixtures.entityClass(entity);
+    String[] updatableColumns = EntityMetadata.of(entityClass).getUpdatableColumnNames();
+    changedColumns = Arrays.copyOf(updatableColumns, Math.min(2, updatableColumns.length));
+  }
+
+  @Benchmark
+  public void cached(Blackhole blackhole) {
+    blackhole.consume(sqlWriter.selectById(entityClass));
+    blackhole.consume(sqlWriter.insert(entityClass));
+    blackhole.consume(sqlWriter.updateById(entityClass));
+    blackhole.consume(sqlWriter.deleteById(entityClass));
+  }
+
+  @Benchmark
+  public String cachedSelectByIds() {
+    return sqlWriter.selectByIds(entityClass, 100);
+  }
+
+  /**
+   * The partial update sent when a DirtyTracker finds changed columns.
+   */
+  @Benchmark
+  public String cachedUpdateChangedColumns() {
+    return sqlWriter.updateById(entityClass, changedColumns);
+  }
+
+  @Benchmark
+  public void generated(Blackhole blackhole) {
+    SqlWriter uncached = new SqlWriter();
+
+    blackhole.consume(uncached.selectById(entityClass));
+    blackhole.consume(uncached.insert(entityClass));
+    blackhole.consume(uncached.updateById(entityClass));
+    blackhole.consume(uncached.deleteById(entityClass));
+  }
+
+  @Benchmark
+  public String generatedSelectByIds() {
+    return new SqlWriter().selectByIds(entityClass, 100);
+  }
+}
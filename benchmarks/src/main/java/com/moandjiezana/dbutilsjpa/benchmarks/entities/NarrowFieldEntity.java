@@ -0,0 +1,13 @@
+package com.moandjiezana.dbutilsjpa.benchmarks.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class NarrowFieldEntity {
+
+  @Id
+  private Long id;
+  private String name;
+  private int age;
+}
@@ -0,0 +1,37 @@
+package com.moandjiezana.dbutilsjpa.benchmarks.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class NarrowPropertyEntity {
+
+  private Long id;
+  private String name;
+  private int age;
+
+  @Id
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public int getAge() {
+    return age;
+  }
+
+  public void setAge(int age) {
+    this.age = age;
+  }
+}
@@ -0,0 +1,31 @@
+package com.moandjiezana.dbutilsjpa.benchmarks.entities;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class WideFieldEntity {
+
+  @Id
+  private Long id;
+  private String name;
+  private String description;
+  @Column(name = "email_address")
+  private String email;
+  private String code;
+  private int age;
+  private Integer quantity;
+  private long score;
+  private Long version;
+  private double rating;
+  private boolean active;
+  private BigDecimal balance;
+  private Date birthDate;
+  private Timestamp createdAt;
+  private Timestamp updatedAt;
+}
@@ -0,0 +1,259 @@
+package com.moandjiezana.dbutilsjpa;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the operations of a {@link JpaQueryRunner} in the background and returns a Future of their result.
+ *
+ * At most {@link Builder#maxConcurrency(int)} operations run at the same time, the others wait for their turn without taking a connection.
+ * Set it to the size of the connection pool, so that operations wait here rather than in the pool.
+ *
+ * <pre><code>AsyncJpaQueryRunner asyncRunner = new AsyncJpaQueryRunner.Builder().maxConcurrency(20).build(jpaQueryRunner);
+ * Future&lt;MyEntity&gt; entity = asyncRunner.query(MyEntity.class, 1L);</code></pre>
+ *
+ * Exceptions thrown by the JpaQueryRunner are wrapped in the ExecutionException thrown by {@link Future#get()}.
+ *
+ * Thread-safe.
+ */
+public class AsyncJpaQueryRunner {
+
+  public static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+  public static class Builder {
+
+    private ExecutorService executor;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    public AsyncJpaQueryRunner build(JpaQueryRunner jpaQueryRunner) {
+      return new AsyncJpaQueryRunner(jpaQueryRunner, this);
+    }
+
+    /**
+     * @param executor runs the operations. It is not shut down by {@link AsyncJpaQueryRunner#shutdown()}.
+     *   By default, virtual threads are used on runtimes that support them, and otherwise a pool of maxConcurrency threads.
+     */
+    public Builder executor(ExecutorService executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * @param maxConcurrency Maximum number of operations running at the same time. Usually the size of the connection pool. Must be positive.
+     */
+    public Builder maxConcurrency(int maxConcurrency) {
+      if (maxConcurrency < 1) {
+        throw new IllegalArgumentException("maxConcurrency must be positive, was " + maxConcurrency);
+      }
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+  }
+
+  private final JpaQueryRunner jpaQueryRunner;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final Semaphore permits;
+
+  /**
+   * Uses the default executor and {@link #DEFAULT_MAX_CONCURRENCY}.
+   */
+  public AsyncJpaQueryRunner(JpaQueryRunner jpaQueryRunner) {
+    this(jpaQueryRunner, new Builder());
+  }
+
+  private AsyncJpaQueryRunner(JpaQueryRunner jpaQueryRunner, Builder builder) {
+    this.jpaQueryRunner = jpaQueryRunner;
+    this.ownsExecutor = builder.executor == null;
+    this.executor = ownsExecutor ? defaultExecutor(builder.maxConcurrency) : builder.executor;
+    this.permits = new Semaphore(builder.maxConcurrency, true);
+  }
+
+  /**
+   * @see JpaQueryRunner#query(Class, Object)
+   */
+  public <T> Future<T> query(final Class<T> entityClass, final Object primaryKey) {
+    return submit(new Callable<T>() {
+      @Override
+      public T call() {
+        return jpaQueryRunner.query(entityClass, primaryKey);
+      }
+    });
+  }
+
+  /**
+   * @see JpaQueryRunner#queryAll(Class, Collection)
+   */
+  public <T> Future<List<T>> queryAll(final Class<T> entityClass, final Collection<?> primaryKeys) {
+    return submit(new Callable<List<T>>() {
+      @Override
+      public List<T> call() {
+        return jpaQueryRunner.queryAll(entityClass, primaryKeys);
+      }
+    });
+  }
+
+  /**
+   * @see JpaQueryRunner#queryAllById(Class, Collection)
+   */
+  public <T> Future<Map<Object, T>> queryAllById(final Class<T> entityClass, final Collection<?> primaryKeys) {
+    return submit(new Callable<Map<Object, T>>() {
+      @Override
+      public Map<Object, T> call() {
+        return jpaQueryRunner.queryAllById(entityClass, primaryKeys);
+      }
+    });
+  }
+
+  /**
+   * @see JpaQueryRunner#save(Object)
+   */
+  public Future<Integer> save(final Object entity) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return jpaQueryRunner.save(entity);
+      }
+    });
+  }
+
+  /**
+   * @see JpaQueryRunner#saveAll(Collection)
+   */
+  public Future<Integer> saveAll(final Collection<?> entities) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return jpaQueryRunner.saveAll(entities);
+      }
+    });
+  }
+
+  /**
+   * @see JpaQueryRunner#insertAll(Collection)
+   */
+  public Future<Integer> insertAll(final Collection<?> entities) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return jpaQueryRunner.insertAll(entities);
+      }
+    });
+  }
+
+  /**
+   * @see JpaQueryRunner#delete(Class, Object)
+   */
+  public Future<Integer> delete(final Class<?> entityClass, final Object primaryKey) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return jpaQueryRunner.delete(entityClass, primaryKey);
+      }
+    });
+  }
+
+  /**
+   * @see JpaQueryRunner#deleteAll(Class, Collection)
+   */
+  public Future<Integer> deleteAll(final Class<?> entityClass, final Collection<?> primaryKeys) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return jpaQueryRunner.deleteAll(entityClass, primaryKeys);
+      }
+    });
+  }
+
+  /**
+   * @see JpaQueryRunner#deleteWhere(Class, String, Object...)
+   */
+  public Future<Integer> deleteWhere(final Class<?> entityClass, final String where, final Object... params) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return jpaQueryRunner.deleteWhere(entityClass, where, params);
+      }
+    });
+  }
+
+  /**
+   * @see JpaQueryRunner#updateWhere(Class, Map, String, Object...)
+   */
+  public Future<Integer> updateWhere(final Class<?> entityClass, final Map<String, ?> values, final String where, final Object... params) {
+    return submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return jpaQueryRunner.updateWhere(entityClass, values, where, params);
+      }
+    });
+  }
+
+  /**
+   * Runs operation once a permit is available. The permit is released when the operation completes, whether it succeeded or not.
+   */
+  public <T> Future<T> submit(final Callable<T> operation) {
+    return executor.submit(new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        permits.acquire();
+        try {
+          return operation.call();
+        } finally {
+          permits.release();
+        }
+      }
+    });
+  }
+
+  /**
+   * Shuts down the default executor once the submitted operations have completed. An executor given to {@link Builder#executor(ExecutorService)} is left running.
+   */
+  public void shutdown() {
+    if (ownsExecutor) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * @return Executors.newVirtualThreadPerTaskExecutor() if it exists, a pool of maxConcurrency threads otherwise. The Semaphore then never blocks.
+   */
+  private static ExecutorService defaultExecutor(int maxConcurrency) {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      return threadPool(maxConcurrency);
+    } catch (IllegalAccessException e) {
+      return threadPool(maxConcurrency);
+    } catch (InvocationTargetException e) {
+      // thrown when virtual threads are a preview feature that has not been enabled
+      return threadPool(maxConcurrency);
+    }
+  }
+
+  /**
+   * Uses daemon threads, so that an AsyncJpaQueryRunner that is not shut down does not prevent the JVM from exiting.
+   */
+  private static ExecutorService threadPool(int maxConcurrency) {
+    return Executors.newFixedThreadPool(maxConcurrency, new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "AsyncJpaQueryRunner-" + count.incrementAndGet());
+        thread.setDaemon(true);
+
+        return thread;
+      }
+    });
+  }
+}
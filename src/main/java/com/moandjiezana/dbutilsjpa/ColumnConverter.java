@@ -0,0 +1,35 @@
+package com.moandjiezana.dbutilsjpa;
+
+import javax.persistence.AttributeConverter;
+
+/**
+ * The conversion chosen for a property by a {@link ConverterRegistry}, along with the type in which the column is read.
+ *
+ * Immutable and thread-safe if the underlying AttributeConverter is.
+ */
+final class ColumnConverter {
+
+  private final AttributeConverter<Object, Object> converter;
+  private final Class<?> columnType;
+
+  @SuppressWarnings("unchecked")
+  ColumnConverter(AttributeConverter<?, ?> converter, Class<?> columnType) {
+    this.converter = (AttributeConverter<Object, Object>) converter;
+    this.columnType = columnType;
+  }
+
+  /**
+   * @return The type passed to {@link JpaBeanProcessor#readColumn(java.sql.ResultSet, int, Class)}. Object if the column type cannot be determined.
+   */
+  Class<?> getColumnType() {
+    return columnType;
+  }
+
+  Object toColumnValue(Object attribute) {
+    return converter.convertToDatabaseColumn(attribute);
+  }
+
+  Object toAttribute(Object columnValue) {
+    return converter.convertToEntityAttribute(columnValue);
+  }
+}
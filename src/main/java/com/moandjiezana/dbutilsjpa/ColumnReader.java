@@ -0,0 +1,701 @@
+package com.moandjiezana.dbutilsjpa;
+
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+import com.moandjiezana.dbutilsjpa.internal.PropertyAccessor;
+import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * Copies one column of the current row into a property of a bean. The ResultSet getter is chosen once, from the property's type, when the reader is created.
+ *
+ * Primitive properties are read with the matching primitive getter and written without boxing. Properties with a conversion in the processor's {@link ConverterRegistry} are read through it.
+ *
+ * Reading can also be split in two steps, for rows mapped on another thread: {@link #extract(ResultSet)} reads the value with the same getter as {@link #read(ResultSet, Object, IdentityMap)},
+ * on the thread that owns the ResultSet, and {@link #apply(Object, Object)} sets it on the bean later.
+ */
+abstract class ColumnReader {
+
+  private static final ColumnReader[] NO_READERS = new ColumnReader[0];
+
+  static ColumnReader create(JpaBeanProcessor processor, ResultSetMetaData rsmd, PropertyDescriptorWrapper property, int columnIndex) throws SQLException {
+    if (property.isRelation()) {
+      Class<?> joinType = property.getRelationType();
+      ColumnReader[] joinReaders = property.isToOneRelation() && joinType != null ? processor.joinReaders(rsmd, joinType) : NO_READERS;
+      PropertyDescriptorWrapper idProperty = property.isToOneRelation() && joinType != null ? EntityMetadata.of(joinType).getIdProperty() : null;
+
+      if (idProperty != null && property.getPropertyType() == LazyReference.class) {
+        return new LazyReferenceReader(processor, property, columnIndex, joinReaders, idProperty);
+      }
+
+      if (idProperty != null && joinReaders.length == 0 && (processor.createsReferences() || (property.isLazy() && processor.getEntityLoader() != null))) {
+        return new ReferenceReader(processor, property, columnIndex, idProperty);
+      }
+
+      return new RelationReader(processor, property, columnIndex, joinReaders, idProperty);
+    }
+
+    Class<?> type = property.getPropertyType();
+    PropertyAccessor accessor = property.getAccessor();
+    ColumnConverter converter = processor.getConverters().forProperty(property);
+
+    if (converter != null) {
+      return new ConvertingReader(processor, accessor, columnIndex, converter);
+    } else if (type == Long.TYPE) {
+      return new PrimitiveLongReader(accessor, columnIndex);
+    } else if (type == Integer.TYPE) {
+      return new PrimitiveIntReader(accessor, columnIndex);
+    } else if (type == Double.TYPE) {
+      return new PrimitiveDoubleReader(accessor, columnIndex);
+    } else if (type == Float.TYPE) {
+      return new PrimitiveFloatReader(accessor, columnIndex);
+    } else if (type == Short.TYPE) {
+      return new PrimitiveShortReader(accessor, columnIndex);
+    } else if (type == Byte.TYPE) {
+      return new PrimitiveByteReader(accessor, columnIndex);
+    } else if (type == Boolean.TYPE) {
+      return new PrimitiveBooleanReader(accessor, columnIndex);
+    } else if (type == Long.class) {
+      return new LongReader(accessor, columnIndex);
+    } else if (type == Integer.class) {
+      return new IntegerReader(accessor, columnIndex);
+    } else if (type == Double.class) {
+      return new DoubleReader(accessor, columnIndex);
+    } else if (type == Float.class) {
+      return new FloatReader(accessor, columnIndex);
+    } else if (type == Short.class) {
+      return new ShortReader(accessor, columnIndex);
+    } else if (type == Byte.class) {
+      return new ByteReader(accessor, columnIndex);
+    } else if (type == Boolean.class) {
+      return new BooleanReader(accessor, columnIndex);
+    } else if (type == String.class) {
+      return new StringReader(accessor, columnIndex);
+    } else if (type == Timestamp.class) {
+      return new TimestampReader(accessor, columnIndex);
+    } else if (type == Date.class) {
+      return new DateReader(accessor, columnIndex);
+    } else if (type == Time.class) {
+      return new TimeReader(accessor, columnIndex);
+    }
+
+    return new DefaultReader(processor, property, columnIndex);
+  }
+
+  final PropertyAccessor accessor;
+  final int columnIndex;
+
+  ColumnReader(PropertyAccessor accessor, int columnIndex) {
+    this.accessor = accessor;
+    this.columnIndex = columnIndex;
+  }
+
+  /**
+   * Overridden by readers that can set the value without boxing it, or that use identities.
+   */
+  void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+    apply(target, extract(rs));
+  }
+
+  /**
+   * @return The value of the column in the current row, as passed to {@link #apply(Object, Object)}. Does not depend on any state of the ResultSet once returned.
+   */
+  abstract Object extract(ResultSet rs) throws SQLException;
+
+  /**
+   * Sets the property of target from a value returned by {@link #extract(ResultSet)}. Does not use the ResultSet, so can be called on any thread.
+   */
+  abstract void apply(Object target, Object value) throws SQLException;
+
+  private static final class PrimitiveLongReader extends ColumnReader {
+    PrimitiveLongReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      accessor.setLong(target, rs.getLong(columnIndex));
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return Long.valueOf(rs.getLong(columnIndex));
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.setLong(target, ((Long) value).longValue());
+    }
+  }
+
+  private static final class PrimitiveIntReader extends ColumnReader {
+    PrimitiveIntReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      accessor.setInt(target, rs.getInt(columnIndex));
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return Integer.valueOf(rs.getInt(columnIndex));
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.setInt(target, ((Integer) value).intValue());
+    }
+  }
+
+  private static final class PrimitiveDoubleReader extends ColumnReader {
+    PrimitiveDoubleReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      accessor.setDouble(target, rs.getDouble(columnIndex));
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return Double.valueOf(rs.getDouble(columnIndex));
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.setDouble(target, ((Double) value).doubleValue());
+    }
+  }
+
+  private static final class PrimitiveFloatReader extends ColumnReader {
+    PrimitiveFloatReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      accessor.setFloat(target, rs.getFloat(columnIndex));
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return Float.valueOf(rs.getFloat(columnIndex));
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.setFloat(target, ((Float) value).floatValue());
+    }
+  }
+
+  private static final class PrimitiveShortReader extends ColumnReader {
+    PrimitiveShortReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      accessor.setShort(target, rs.getShort(columnIndex));
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return Short.valueOf(rs.getShort(columnIndex));
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.setShort(target, ((Short) value).shortValue());
+    }
+  }
+
+  private static final class PrimitiveByteReader extends ColumnReader {
+    PrimitiveByteReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      accessor.setByte(target, rs.getByte(columnIndex));
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return Byte.valueOf(rs.getByte(columnIndex));
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.setByte(target, ((Byte) value).byteValue());
+    }
+  }
+
+  private static final class PrimitiveBooleanReader extends ColumnReader {
+    PrimitiveBooleanReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      accessor.setBoolean(target, rs.getBoolean(columnIndex));
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return Boolean.valueOf(rs.getBoolean(columnIndex));
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.setBoolean(target, ((Boolean) value).booleanValue());
+    }
+  }
+
+  private static final class LongReader extends ColumnReader {
+    LongReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      long value = rs.getLong(columnIndex);
+      return rs.wasNull() ? null : Long.valueOf(value);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class IntegerReader extends ColumnReader {
+    IntegerReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      int value = rs.getInt(columnIndex);
+      return rs.wasNull() ? null : Integer.valueOf(value);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class DoubleReader extends ColumnReader {
+    DoubleReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      double value = rs.getDouble(columnIndex);
+      return rs.wasNull() ? null : Double.valueOf(value);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class FloatReader extends ColumnReader {
+    FloatReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      float value = rs.getFloat(columnIndex);
+      return rs.wasNull() ? null : Float.valueOf(value);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class ShortReader extends ColumnReader {
+    ShortReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      short value = rs.getShort(columnIndex);
+      return rs.wasNull() ? null : Short.valueOf(value);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class ByteReader extends ColumnReader {
+    ByteReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      byte value = rs.getByte(columnIndex);
+      return rs.wasNull() ? null : Byte.valueOf(value);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class BooleanReader extends ColumnReader {
+    BooleanReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      boolean value = rs.getBoolean(columnIndex);
+      return rs.wasNull() ? null : Boolean.valueOf(value);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class StringReader extends ColumnReader {
+    StringReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return rs.getString(columnIndex);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class TimestampReader extends ColumnReader {
+    TimestampReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return rs.getTimestamp(columnIndex);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class DateReader extends ColumnReader {
+    DateReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return rs.getDate(columnIndex);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  private static final class TimeReader extends ColumnReader {
+    TimeReader(PropertyAccessor accessor, int columnIndex) {
+      super(accessor, columnIndex);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return rs.getTime(columnIndex);
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, value);
+    }
+  }
+
+  /**
+   * Reads the column in the type expected by the {@link ConverterRegistry}'s converter and sets the property to the converted value.
+   */
+  private static final class ConvertingReader extends ColumnReader {
+    private final JpaBeanProcessor processor;
+    private final ColumnConverter converter;
+
+    ConvertingReader(JpaBeanProcessor processor, PropertyAccessor accessor, int columnIndex, ColumnConverter converter) {
+      super(accessor, columnIndex);
+      this.processor = processor;
+      this.converter = converter;
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return processor.readColumn(rs, columnIndex, converter.getColumnType());
+    }
+
+    @Override
+    void apply(Object target, Object value) {
+      accessor.set(target, converter.toAttribute(value));
+    }
+  }
+
+  /**
+   * Reads the related entity from joinReaders. If identities is not null and already contains the entity with the id in the join column, that instance is used instead.
+   */
+  static <T> T readJoined(EntityMetadata joinMetadata, ResultSet rs, Class<T> joinType, ColumnReader[] joinReaders, Object id, IdentityMap identities) throws SQLException {
+    if (identities != null && id != null) {
+      T existing = identities.get(joinType, id);
+      if (existing != null) {
+        return existing;
+      }
+    }
+
+    T entity = joinType.cast(joinMetadata.newInstance());
+    for (ColumnReader joinReader : joinReaders) {
+      joinReader.read(rs, entity, identities);
+    }
+
+    if (identities != null && id != null) {
+      identities.put(joinType, id, entity);
+    }
+
+    return entity;
+  }
+
+  /**
+   * @return The values of the related entity's columns, extracted by joinReaders.
+   */
+  static Object[] extractJoined(ResultSet rs, ColumnReader[] joinReaders) throws SQLException {
+    Object[] values = new Object[joinReaders.length];
+    for (int i = 0; i < joinReaders.length; i++) {
+      values[i] = joinReaders[i].extract(rs);
+    }
+
+    return values;
+  }
+
+  /**
+   * @return A new related entity, set from values returned by {@link #extractJoined(ResultSet, ColumnReader[])}.
+   */
+  static <T> T applyJoined(EntityMetadata joinMetadata, Class<T> joinType, ColumnReader[] joinReaders, Object[] values) throws SQLException {
+    T entity = joinType.cast(joinMetadata.newInstance());
+    for (int i = 0; i < joinReaders.length; i++) {
+      joinReaders[i].apply(entity, values[i]);
+    }
+
+    return entity;
+  }
+
+  /**
+   * Reads a ToOne relation from the joined entity's columns, which were located when the reader was created.
+   * The related entity is null if the ResultSet does not contain any of its columns. OneToMany properties are set to null.
+   */
+  private static final class RelationReader extends ColumnReader {
+    private final JpaBeanProcessor processor;
+    private final Class<?> joinType;
+    private final EntityMetadata joinMetadata;
+    private final ColumnReader[] joinReaders;
+    private final PropertyDescriptorWrapper idProperty;
+
+    RelationReader(JpaBeanProcessor processor, PropertyDescriptorWrapper property, int columnIndex, ColumnReader[] joinReaders, PropertyDescriptorWrapper idProperty) {
+      super(property.getAccessor(), columnIndex);
+      this.processor = processor;
+      this.joinType = property.getPropertyType();
+      this.joinMetadata = joinReaders.length > 0 ? EntityMetadata.of(joinType) : null;
+      this.joinReaders = joinReaders;
+      this.idProperty = idProperty;
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      Object value = null;
+
+      if (joinReaders.length > 0) {
+        Object id = null;
+        if (identities != null && idProperty != null) {
+          id = processor.readColumn(rs, columnIndex, idProperty.getPropertyType());
+          if (rs.wasNull()) {
+            id = null;
+          }
+        }
+
+        value = readJoined(joinMetadata, rs, joinType, joinReaders, id, identities);
+      }
+
+      accessor.set(target, value);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return joinReaders.length > 0 ? extractJoined(rs, joinReaders) : null;
+    }
+
+    @Override
+    void apply(Object target, Object value) throws SQLException {
+      accessor.set(target, value != null ? applyJoined(joinMetadata, joinType, joinReaders, (Object[]) value) : null);
+    }
+  }
+
+  /**
+   * Sets a ToOne relation to an instance of the related entity with only its id set, read from the join column. Null if the join column is null.
+   * If identities already contains the related entity, it is used instead. References are not added to identities, as they are incomplete.
+   */
+  private static final class ReferenceReader extends ColumnReader {
+    private final JpaBeanProcessor processor;
+    private final Class<?> joinType;
+    private final EntityMetadata joinMetadata;
+    private final PropertyDescriptorWrapper idProperty;
+
+    ReferenceReader(JpaBeanProcessor processor, PropertyDescriptorWrapper property, int columnIndex, PropertyDescriptorWrapper idProperty) {
+      super(property.getAccessor(), columnIndex);
+      this.processor = processor;
+      this.joinType = property.getPropertyType();
+      this.joinMetadata = EntityMetadata.of(joinType);
+      this.idProperty = idProperty;
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      Object id = processor.readColumn(rs, columnIndex, idProperty.getPropertyType());
+      Object reference = null;
+
+      if (!rs.wasNull()) {
+        reference = identities != null ? identities.get(joinType, id) : null;
+        if (reference == null) {
+          reference = reference(id);
+        }
+      }
+
+      accessor.set(target, reference);
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      Object id = processor.readColumn(rs, columnIndex, idProperty.getPropertyType());
+      return rs.wasNull() ? null : id;
+    }
+
+    @Override
+    void apply(Object target, Object value) throws SQLException {
+      accessor.set(target, value != null ? reference(value) : null);
+    }
+
+    private Object reference(Object id) throws SQLException {
+      Object reference = joinMetadata.newInstance();
+      idProperty.set(reference, id);
+
+      return reference;
+    }
+  }
+
+  /**
+   * Sets a {@link LazyReference} from the join column. If the related entity's columns are present, it is read from them and the reference is already loaded.
+   */
+  private static final class LazyReferenceReader extends ColumnReader {
+    private final JpaBeanProcessor processor;
+    private final Class<?> joinType;
+    private final EntityMetadata joinMetadata;
+    private final ColumnReader[] joinReaders;
+    private final PropertyDescriptorWrapper idProperty;
+
+    LazyReferenceReader(JpaBeanProcessor processor, PropertyDescriptorWrapper property, int columnIndex, ColumnReader[] joinReaders, PropertyDescriptorWrapper idProperty) {
+      super(property.getAccessor(), columnIndex);
+      this.processor = processor;
+      this.joinType = property.getRelationType();
+      this.joinMetadata = joinReaders.length > 0 ? EntityMetadata.of(joinType) : null;
+      this.joinReaders = joinReaders;
+      this.idProperty = idProperty;
+    }
+
+    @Override
+    void read(ResultSet rs, Object target, IdentityMap identities) throws SQLException {
+      Object id = processor.readColumn(rs, columnIndex, idProperty.getPropertyType());
+      accessor.set(target, rs.wasNull() ? null : reference(joinType, id, rs, identities));
+    }
+
+    private <T> LazyReference<T> reference(Class<T> entityClass, Object id, ResultSet rs, IdentityMap identities) throws SQLException {
+      if (joinReaders.length == 0) {
+        return new LazyReference<T>(entityClass, id, processor.getEntityLoader());
+      }
+
+      return LazyReference.loaded(entityClass, id, readJoined(joinMetadata, rs, entityClass, joinReaders, id, identities));
+    }
+
+    /**
+     * @return The id and, if the related entity's columns are present, their values. Null if the join column is null.
+     */
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      Object id = processor.readColumn(rs, columnIndex, idProperty.getPropertyType());
+      if (rs.wasNull()) {
+        return null;
+      }
+
+      return new Object[] { id, joinReaders.length > 0 ? extractJoined(rs, joinReaders) : null };
+    }
+
+    @Override
+    void apply(Object target, Object value) throws SQLException {
+      accessor.set(target, value != null ? reference(joinType, (Object[]) value) : null);
+    }
+
+    private <T> LazyReference<T> reference(Class<T> entityClass, Object[] value) throws SQLException {
+      if (value[1] == null) {
+        return new LazyReference<T>(entityClass, value[0], processor.getEntityLoader());
+      }
+
+      return LazyReference.loaded(entityClass, value[0], applyJoined(joinMetadata, entityClass, joinReaders, (Object[]) value[1]));
+    }
+  }
+
+  /**
+   * Uses {@link JpaBeanProcessor}'s conversions for types without a dedicated reader.
+   */
+  private static final class DefaultReader extends ColumnReader {
+    private final JpaBeanProcessor processor;
+    private final PropertyDescriptorWrapper property;
+
+    DefaultReader(JpaBeanProcessor processor, PropertyDescriptorWrapper property, int columnIndex) {
+      super(property.getAccessor(), columnIndex);
+      this.processor = processor;
+      this.property = property;
+    }
+
+    @Override
+    Object extract(ResultSet rs) throws SQLException {
+      return processor.readColumn(rs, columnIndex, property.getPropertyType());
+    }
+
+    @Override
+    void apply(Object target, Object value) throws SQLException {
+      processor.callSetter(target, property, value);
+    }
+  }
+}
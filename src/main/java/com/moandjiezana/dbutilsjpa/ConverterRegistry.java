@@ -0,0 +1,299 @@
+package com.moandjiezana.dbutilsjpa;
+
+import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Convert;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+
+/**
+ * Chooses how the value of a property is converted to and from its column. The conversion is chosen once per property, so reading a row or writing an entity
+ * only calls the chosen converter. Properties without a conversion are read and written as-is.
+ *
+ * Conversions are chosen in this order:
+ * <ol>
+ *   <li>The converter declared with @Convert. @Convert(disableConversion = true) disables conversion.</li>
+ *   <li>Enums annotated with @Enumerated are stored by name or by ordinal, as specified.</li>
+ *   <li>The converter registered for the property's type with {@link Builder#converter(Class, AttributeConverter)}.</li>
+ *   <li>Built-in conversions: UUID is stored as a String and, when running on Java 8 or later, LocalDate, LocalTime, LocalDateTime and Instant
+ *     are stored as java.sql.Date, Time and Timestamp.</li>
+ *   <li>Other enums are stored by name.</li>
+ * </ol>
+ *
+ * Immutable and thread-safe if the registered converters are.
+ *
+ * @see JpaBeanProcessor.Builder#converters(ConverterRegistry)
+ * @see JpaQueryRunner.Builder#converters(ConverterRegistry)
+ */
+public class ConverterRegistry {
+
+  public static final ConverterRegistry DEFAULT = new Builder().build();
+
+  private static final ColumnConverter NONE = new ColumnConverter(null, null);
+
+  public static class Builder {
+
+    private final Map<Class<?>, ColumnConverter> converters = new HashMap<Class<?>, ColumnConverter>();
+
+    public Builder() {
+      converters.put(UUID.class, new ColumnConverter(new UuidConverter(), String.class));
+      addTemporalConverter("java.time.LocalDate", java.sql.Date.class, "valueOf", "toLocalDate");
+      addTemporalConverter("java.time.LocalTime", Time.class, "valueOf", "toLocalTime");
+      addTemporalConverter("java.time.LocalDateTime", Timestamp.class, "valueOf", "toLocalDateTime");
+      addTemporalConverter("java.time.Instant", Timestamp.class, "from", "toInstant");
+    }
+
+    public ConverterRegistry build() {
+      return new ConverterRegistry(this);
+    }
+
+    /**
+     * Registers converter for properties of type attributeType, replacing any built-in conversion. The equivalent of @Converter(autoApply = true).
+     * Properties annotated with @Convert or @Enumerated are not affected.
+     */
+    public <X> Builder converter(Class<X> attributeType, AttributeConverter<X, ?> converter) {
+      converters.put(attributeType, new ColumnConverter(converter, columnType(converter.getClass())));
+      return this;
+    }
+
+    private void addTemporalConverter(String attributeTypeName, Class<?> columnType, String toColumnMethod, String toAttributeMethod) {
+      try {
+        Class<?> attributeType = Class.forName(attributeTypeName);
+        TemporalConverter converter = new TemporalConverter(columnType.getMethod(toColumnMethod, attributeType), columnType.getMethod(toAttributeMethod));
+        converters.put(attributeType, new ColumnConverter(converter, columnType));
+      } catch (ClassNotFoundException e) {
+        // java.time is not available before Java 8
+      } catch (NoSuchMethodException e) {
+        // idem
+      }
+    }
+  }
+
+  private final Map<Class<?>, ColumnConverter> converters;
+  private final ConcurrentMap<Member, ColumnConverter> propertyConverters = new ConcurrentHashMap<Member, ColumnConverter>();
+
+  private ConverterRegistry(Builder builder) {
+    this.converters = new HashMap<Class<?>, ColumnConverter>(builder.converters);
+  }
+
+  /**
+   * @return The conversion for property, or null if its value is read and written as-is. Chosen on first call, then reused.
+   */
+  ColumnConverter forProperty(PropertyDescriptorWrapper property) {
+    Member member = property.getMember();
+    if (member == null) {
+      return resolve(property);
+    }
+
+    ColumnConverter converter = propertyConverters.get(member);
+    if (converter == null) {
+      converter = resolve(property);
+      ColumnConverter existing = propertyConverters.putIfAbsent(member, converter != null ? converter : NONE);
+      if (existing != null) {
+        converter = existing;
+      }
+    }
+
+    return converter != NONE ? converter : null;
+  }
+
+  /**
+   * Converts a value that is not bound to a property, such as a query parameter, according to its type. Enums are converted to their name.
+   */
+  Object toColumnValue(Object value) {
+    if (value == null) {
+      return null;
+    }
+
+    ColumnConverter converter = converters.get(value.getClass());
+    if (converter != null) {
+      return converter.toColumnValue(value);
+    }
+
+    if (value instanceof Enum) {
+      return ((Enum<?>) value).name();
+    }
+
+    return value;
+  }
+
+  private ColumnConverter resolve(PropertyDescriptorWrapper property) {
+    AccessibleObject accessibleObject = property.getAccessibleObject();
+    Class<?> type = property.getPropertyType();
+
+    Convert convert = accessibleObject != null ? accessibleObject.getAnnotation(Convert.class) : null;
+    if (convert != null && convert.disableConversion()) {
+      return null;
+    }
+    if (convert != null && convert.converter() != void.class) {
+      return new ColumnConverter(newConverter(convert.converter()), columnType(convert.converter()));
+    }
+
+    Enumerated enumerated = accessibleObject != null ? accessibleObject.getAnnotation(Enumerated.class) : null;
+    if (enumerated != null && type.isEnum()) {
+      return enumerated.value() == EnumType.ORDINAL ? new ColumnConverter(new EnumOrdinalConverter(type), Integer.class) : new ColumnConverter(new EnumNameConverter(type), String.class);
+    }
+
+    ColumnConverter converter = converters.get(type);
+    if (converter != null) {
+      return converter;
+    }
+
+    if (type.isEnum()) {
+      return new ColumnConverter(new EnumNameConverter(type), String.class);
+    }
+
+    return null;
+  }
+
+  private static AttributeConverter<?, ?> newConverter(Class<?> converterClass) {
+    try {
+      return (AttributeConverter<?, ?>) converterClass.newInstance();
+    } catch (InstantiationException e) {
+      throw new RuntimeException(e);
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * @return The second type argument of AttributeConverter, as implemented by converterClass or one of its superclasses. Object if it is not a class.
+   */
+  private static Class<?> columnType(Class<?> converterClass) {
+    for (Class<?> c = converterClass; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Type genericInterface : c.getGenericInterfaces()) {
+        if (genericInterface instanceof ParameterizedType && ((ParameterizedType) genericInterface).getRawType() == AttributeConverter.class) {
+          Type columnType = ((ParameterizedType) genericInterface).getActualTypeArguments()[1];
+          return columnType instanceof Class ? (Class<?>) columnType : Object.class;
+        }
+      }
+    }
+
+    return Object.class;
+  }
+
+  /**
+   * Looks constants up in a map built once, rather than with Enum.valueOf().
+   */
+  @SuppressWarnings("rawtypes")
+  private static final class EnumNameConverter implements AttributeConverter<Enum, String> {
+    private final Class<?> enumType;
+    private final Map<String, Enum> constants = new HashMap<String, Enum>();
+
+    EnumNameConverter(Class<?> enumType) {
+      this.enumType = enumType;
+      for (Object constant : enumType.getEnumConstants()) {
+        constants.put(((Enum) constant).name(), (Enum) constant);
+      }
+    }
+
+    @Override
+    public String convertToDatabaseColumn(Enum attribute) {
+      return attribute != null ? attribute.name() : null;
+    }
+
+    @Override
+    public Enum convertToEntityAttribute(String dbData) {
+      if (dbData == null) {
+        return null;
+      }
+
+      Enum constant = constants.get(dbData);
+      if (constant == null) {
+        throw new IllegalArgumentException("No enum constant " + enumType.getName() + "." + dbData);
+      }
+
+      return constant;
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final class EnumOrdinalConverter implements AttributeConverter<Enum, Integer> {
+    private final Class<?> enumType;
+    private final Object[] constants;
+
+    EnumOrdinalConverter(Class<?> enumType) {
+      this.enumType = enumType;
+      this.constants = enumType.getEnumConstants();
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(Enum attribute) {
+      return attribute != null ? Integer.valueOf(attribute.ordinal()) : null;
+    }
+
+    @Override
+    public Enum convertToEntityAttribute(Integer dbData) {
+      if (dbData == null) {
+        return null;
+      }
+
+      int ordinal = dbData.intValue();
+      if (ordinal < 0 || ordinal >= constants.length) {
+        throw new IllegalArgumentException("No enum constant of " + enumType.getName() + " with ordinal " + ordinal);
+      }
+
+      return (Enum) constants[ordinal];
+    }
+  }
+
+  private static final class UuidConverter implements AttributeConverter<UUID, String> {
+    @Override
+    public String convertToDatabaseColumn(UUID attribute) {
+      return attribute != null ? attribute.toString() : null;
+    }
+
+    @Override
+    public UUID convertToEntityAttribute(String dbData) {
+      return dbData != null ? UUID.fromString(dbData) : null;
+    }
+  }
+
+  /**
+   * Converts java.time types with the methods JDBC 4.2 added to java.sql.Date, Time and Timestamp. They are looked up reflectively so that this library still runs on Java 6.
+   */
+  private static final class TemporalConverter implements AttributeConverter<Object, Object> {
+    private final Method toColumn;
+    private final Method toAttribute;
+
+    TemporalConverter(Method toColumn, Method toAttribute) {
+      this.toColumn = toColumn;
+      this.toAttribute = toAttribute;
+    }
+
+    @Override
+    public Object convertToDatabaseColumn(Object attribute) {
+      return attribute != null ? invoke(toColumn, null, attribute) : null;
+    }
+
+    @Override
+    public Object convertToEntityAttribute(Object dbData) {
+      return dbData != null ? invoke(toAttribute, dbData) : null;
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+      try {
+        return method.invoke(target, args);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      } catch (InvocationTargetException e) {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
+}
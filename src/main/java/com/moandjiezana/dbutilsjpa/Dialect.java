@@ -0,0 +1,21 @@
+package com.moandjiezana.dbutilsjpa;
+
+/**
+ * Databases whose specific syntax can be generated by {@link SqlWriter}. Only needed for statements that have no standard equivalent, such as upserts.
+ *
+ * @see SqlWriter#SqlWriter(Dialect)
+ */
+public enum Dialect {
+  /**
+   * MERGE INTO ... KEY (...) VALUES (...)
+   */
+  H2,
+  /**
+   * INSERT ... ON CONFLICT (...) DO UPDATE. Requires PostgreSQL 9.5 or later.
+   */
+  POSTGRESQL,
+  /**
+   * INSERT ... ON DUPLICATE KEY UPDATE
+   */
+  MYSQL
+}
@@ -0,0 +1,174 @@
+package com.moandjiezana.dbutilsjpa;
+
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the values of the updatable columns of entities, so that {@link JpaQueryRunner#save(Object)} only updates the columns that have changed.
+ *
+ * Entities are tracked by identity and weakly referenced: a snapshot is discarded once its entity is garbage collected.
+ * Dates and arrays of any type are copied when the snapshot is taken, so changes made to them in place are detected.
+ *
+ * Thread-safe, but an entity must not be modified while its snapshot is taken or compared.
+ *
+ * @see JpaBeanProcessor.Builder#dirtyTracker(DirtyTracker)
+ * @see JpaQueryRunner.Builder#dirtyTracker(DirtyTracker)
+ */
+public class DirtyTracker {
+
+  private static final String[] NO_COLUMNS = new String[0];
+
+  private final ConcurrentMap<Object, Object[]> snapshots = new ConcurrentHashMap<Object, Object[]>();
+  private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+
+  /**
+   * Records the current values of entity's updatable columns, replacing any previous snapshot.
+   */
+  public void snapshot(Object entity) {
+    expungeCollected();
+
+    PropertyDescriptorWrapper[] properties = EntityMetadata.of(entity.getClass()).getUpdatableProperties();
+    Object[] values = new Object[properties.length];
+    for (int i = 0; i < properties.length; i++) {
+      values[i] = copy(properties[i].get(entity));
+    }
+
+    snapshots.put(new IdentityKey(entity, collected), values);
+  }
+
+  public boolean isTracked(Object entity) {
+    return snapshots.containsKey(new IdentityKey(entity, null));
+  }
+
+  public void forget(Object entity) {
+    snapshots.remove(new IdentityKey(entity, null));
+  }
+
+  /**
+   * @return The names of the updatable columns whose values differ from the snapshot, in column order. Empty if none changed. Null if entity is not tracked.
+   */
+  public String[] changedColumns(Object entity) {
+    int[] changedProperties = changedProperties(entity);
+    if (changedProperties == null) {
+      return null;
+    }
+    if (changedProperties.length == 0) {
+      return NO_COLUMNS;
+    }
+
+    String[] updatableColumnNames = EntityMetadata.of(entity.getClass()).getUpdatableColumnNames();
+    String[] columns = new String[changedProperties.length];
+    for (int i = 0; i < changedProperties.length; i++) {
+      columns[i] = updatableColumnNames[changedProperties[i]];
+    }
+
+    return columns;
+  }
+
+  /**
+   * @return Indexes in {@link EntityMetadata#getUpdatableProperties()} of the properties that changed. Null if entity is not tracked.
+   */
+  int[] changedProperties(Object entity) {
+    Object[] snapshot = snapshots.get(new IdentityKey(entity, null));
+    if (snapshot == null) {
+      return null;
+    }
+
+    PropertyDescriptorWrapper[] properties = EntityMetadata.of(entity.getClass()).getUpdatableProperties();
+    int[] changed = new int[properties.length];
+    int count = 0;
+    for (int i = 0; i < properties.length; i++) {
+      if (!same(snapshot[i], properties[i].get(entity))) {
+        changed[count++] = i;
+      }
+    }
+
+    return Arrays.copyOf(changed, count);
+  }
+
+  private void expungeCollected() {
+    Reference<?> reference;
+    while ((reference = collected.poll()) != null) {
+      snapshots.remove(reference);
+    }
+  }
+
+  /**
+   * @return A copy of value if it is a Date or an array, which can be changed in place. Arrays of objects are copied deeply. Otherwise value itself.
+   */
+  static Object copy(Object value) {
+    if (value instanceof Date) {
+      return ((Date) value).clone();
+    } else if (value instanceof Object[]) {
+      Object[] array = (Object[]) value;
+      Object[] copy = (Object[]) Array.newInstance(array.getClass().getComponentType(), array.length);
+      for (int i = 0; i < array.length; i++) {
+        copy[i] = copy(array[i]);
+      }
+
+      return copy;
+    } else if (value != null && value.getClass().isArray()) {
+      int length = Array.getLength(value);
+      Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+      System.arraycopy(value, 0, copy, 0, length);
+
+      return copy;
+    }
+
+    return value;
+  }
+
+  /**
+   * Arrays, including arrays of primitives, are compared by their contents.
+   */
+  private static boolean same(Object snapshot, Object current) {
+    if (snapshot == null || current == null) {
+      return snapshot == current;
+    } else if (snapshot.getClass().isArray() && current.getClass().isArray()) {
+      return Arrays.deepEquals(new Object[] { snapshot }, new Object[] { current });
+    }
+
+    return snapshot.equals(current);
+  }
+
+  /**
+   * Compares entities by identity rather than equals(), which entities often override.
+   * Keys created for lookups have no queue, keys stored in the map are registered with one so that they can be removed once collected.
+   */
+  private static final class IdentityKey extends WeakReference<Object> {
+    private final int hashCode;
+
+    IdentityKey(Object entity, ReferenceQueue<Object> queue) {
+      super(entity, queue);
+      this.hashCode = System.identityHashCode(entity);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof IdentityKey)) {
+        return false;
+      }
+
+      Object entity = get();
+
+      return entity != null && entity == ((IdentityKey) obj).get();
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package com.moandjiezana.dbutilsjpa;
 
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
@@ -27,25 +29,7 @@ public class Entities {
    * @throws Exception if there is no {@link Id} annotation.
    */
   public static AccessibleObject getIdAccessor(Class<?> type) {
-    for (Method method : type.getMethods()) {
-      if (isIdAccessor(method)) {
-        if (!method.isAccessible()) {
-          method.setAccessible(true);
-        }
-        return method;
-      }
-    }
-
-    for (Field field : type.getDeclaredFields()) {
-      if (isIdAccessor(field)) {
-        if (!field.isAccessible()) {
-          field.setAccessible(true);
-        }
-        return field;
-      }
-    }
-
-    throw new IllegalArgumentException(type.getName() + " does not have a field or property annotated with @Id");
+    return EntityMetadata.of(type).getIdAccessor();
   }
 
   /**
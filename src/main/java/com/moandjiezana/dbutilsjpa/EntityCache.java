@@ -0,0 +1,26 @@
+package com.moandjiezana.dbutilsjpa;
+
+/**
+ * Stores the state of entities by class and primary key, so that {@link JpaQueryRunner#query(Class, Object)} does not have to go to the database.
+ *
+ * The values are opaque to the cache. Implementations must be thread-safe.
+ *
+ * @see LruEntityCache
+ */
+public interface EntityCache {
+
+  /**
+   * @return The value stored for the entity, or null if there is none.
+   */
+  Object get(Class<?> entityClass, Object id);
+
+  void put(Class<?> entityClass, Object id, Object value);
+
+  void evict(Class<?> entityClass, Object id);
+
+  /**
+   * Removes all the entities of entityClass.
+   */
+  void evictAll(Class<?> entityClass);
+
+}
@@ -0,0 +1,15 @@
+package com.moandjiezana.dbutilsjpa;
+
+/**
+ * Loads entities by primary key. Used by {@link LazyReference} when it is first accessed.
+ *
+ * Implemented by {@link JpaQueryRunner}.
+ */
+public interface EntityLoader {
+
+  /**
+   * @return The entity, or null if it does not exist.
+   */
+  <T> T query(Class<T> entityClass, Object primaryKey);
+
+}
@@ -0,0 +1,137 @@
+package com.moandjiezana.dbutilsjpa;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.RowProcessor;
+
+/**
+ * Iterates over the results of a query, mapping each row to an entity only when it is requested. Only the current row is held in memory.
+ *
+ * The underlying resources are released when the last row has been read, when an error occurs or when {@link #close()} is called.
+ * Callers that may stop iterating early must call {@link #close()}.
+ *
+ * Not thread-safe. Can only be iterated once.
+ *
+ * @see JpaQueryRunner#stream(Class, String, Object...)
+ */
+public class EntityStream<T> implements Iterable<T>, Iterator<T>, Closeable {
+
+  private final Connection connection;
+  private final Statement statement;
+  private final ResultSet resultSet;
+  private final Class<T> entityClass;
+  private final RowProcessor rowProcessor;
+  private final JpaBeanProcessor beanProcessor;
+  private final RowMapper<T> rowMapper;
+  private boolean fetched;
+  private boolean hasNext;
+  private boolean closed;
+
+  /**
+   * @param connection closed along with the stream. May be null if the connection is managed by the caller.
+   * @param rowMapper used with beanProcessor instead of rowProcessor if not null. Created once for the ResultSet.
+   */
+  EntityStream(Connection connection, Statement statement, ResultSet resultSet, Class<T> entityClass, RowProcessor rowProcessor, JpaBeanProcessor beanProcessor, RowMapper<T> rowMapper) {
+    this.connection = connection;
+    this.statement = statement;
+    this.resultSet = resultSet;
+    this.entityClass = entityClass;
+    this.rowProcessor = rowProcessor;
+    this.beanProcessor = beanProcessor;
+    this.rowMapper = rowMapper;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return this;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+
+    if (!fetched) {
+      try {
+        hasNext = resultSet.next();
+        fetched = true;
+      } catch (SQLException e) {
+        close();
+        throw new RuntimeException(e);
+      }
+
+      if (!hasNext) {
+        close();
+      }
+    }
+
+    return hasNext;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    fetched = false;
+    try {
+      return rowMapper != null ? beanProcessor.toBean(resultSet, rowMapper) : rowProcessor.toBean(resultSet, entityClass);
+    } catch (SQLException e) {
+      close();
+      throw new RuntimeException(e);
+    } catch (RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Closes the ResultSet, the statement and, if it was opened by {@link JpaQueryRunner}, the connection. Each is closed even if closing the previous one failed; the first failure is rethrown.
+   * Calling it more than once has no effect.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    SQLException failure = null;
+
+    try {
+      DbUtils.close(resultSet);
+    } catch (SQLException e) {
+      failure = e;
+    }
+
+    try {
+      DbUtils.close(statement);
+    } catch (SQLException e) {
+      failure = failure != null ? failure : e;
+    }
+
+    try {
+      DbUtils.close(connection);
+    } catch (SQLException e) {
+      failure = failure != null ? failure : e;
+    }
+
+    if (failure != null) {
+      throw new RuntimeException(failure);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.moandjiezana.dbutilsjpa;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps entity classes and ids to instances, so that every row describing the same entity resolves to the same instance.
+ *
+ * Not thread-safe. Use one per query or per unit of work, as the instances are kept until the map is discarded or cleared.
+ *
+ * @see JpaBeanProcessor#toBeanList(java.sql.ResultSet, Class, IdentityMap)
+ */
+public class IdentityMap {
+
+  private final Map<Key, Object> entities = new HashMap<Key, Object>();
+
+  /**
+   * @return The instance of entityClass with the given id, or null if there is none.
+   */
+  public <T> T get(Class<T> entityClass, Object id) {
+    return entityClass.cast(entities.get(new Key(entityClass, id)));
+  }
+
+  public void put(Class<?> entityClass, Object id, Object entity) {
+    entities.put(new Key(entityClass, id), entity);
+  }
+
+  public int size() {
+    return entities.size();
+  }
+
+  public void clear() {
+    entities.clear();
+  }
+
+  private static final class Key {
+    private final Class<?> entityClass;
+    private final Object id;
+
+    Key(Class<?> entityClass, Object id) {
+      this.entityClass = entityClass;
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * entityClass.hashCode() + id.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) obj;
+
+      return entityClass == other.entityClass && id.equals(other.id);
+    }
+  }
+}
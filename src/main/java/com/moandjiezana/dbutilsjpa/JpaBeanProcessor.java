@@ -1,13 +1,9 @@
 package com.moandjiezana.dbutilsjpa;
 
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
 import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
 
 import java.beans.PropertyDescriptor;
-import java.lang.reflect.AccessibleObject;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -17,6 +13,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.persistence.Entity;
 
@@ -29,7 +31,12 @@ public class JpaBeanProcessor extends BeanProcessor {
    * indicates there is no bean property that matches a column from a
    * <code>ResultSet</code>.
    */
-  private static final int PROPERTY_NOT_FOUND = -1;
+  static final int PROPERTY_NOT_FOUND = -1;
+
+  /**
+   * Number of rows mapped by each task when mapping in parallel.
+   */
+  static final int PARALLEL_MAPPING_CHUNK_SIZE = 256;
 
   /*
    * Set a bean's primitive properties to these defaults when SQL NULL is
@@ -39,6 +46,14 @@ public class JpaBeanProcessor extends BeanProcessor {
   private static final Map<Class<?>, Object> primitiveDefaults = new HashMap<Class<?>, Object>();
 
   private final String foreignKeySuffix;
+  private final boolean references;
+  private final EntityLoader entityLoader;
+  private final boolean identityMap;
+  private final DirtyTracker dirtyTracker;
+  private final ConverterRegistry converters;
+  private final ExecutorService mappingExecutor;
+  private final int parallelMappingThreshold;
+  private final ConcurrentMap<ResultSetShape, RowMapper<?>> rowMappers = new ConcurrentHashMap<ResultSetShape, RowMapper<?>>();
 
   static {
     primitiveDefaults.put(Integer.TYPE, Integer.valueOf(0));
@@ -62,22 +77,152 @@ public class JpaBeanProcessor extends BeanProcessor {
    * @param foreignKeySuffix appended to the names of join columns when no name is explicitly specified in an annotation
    */
   public JpaBeanProcessor(String foreignKeySuffix) {
-    this.foreignKeySuffix = foreignKeySuffix;
+    this(foreignKeySuffix, false);
+  }
+
+  /**
+   * @param foreignKeySuffix appended to the names of join columns when no name is explicitly specified in an annotation
+   * @param references if true, a ToOne relation whose table is not part of the ResultSet is set to a reference: an instance of the related entity with only its id set, read from the join column.
+   *   References can be replaced by the full entities with {@link JpaQueryRunner#fetchRelations(Class, List, String...)}.
+   *   If false, such relations are set to null, unless they are declared with fetch = FetchType.LAZY and the processor has an {@link EntityLoader}.
+   */
+  public JpaBeanProcessor(String foreignKeySuffix, boolean references) {
+    this(foreignKeySuffix, references, null);
+  }
+
+  /**
+   * @param foreignKeySuffix appended to the names of join columns when no name is explicitly specified in an annotation
+   * @param references see {@link #JpaBeanProcessor(String, boolean)}
+   * @param entityLoader used by {@link LazyReference} properties to load the related entity on first access. Usually a {@link JpaQueryRunner}.
+   *   If not null, ToOne relations declared with fetch = FetchType.LAZY whose table is not part of the ResultSet are set to references, as if references were true.
+   */
+  public JpaBeanProcessor(String foreignKeySuffix, boolean references, EntityLoader entityLoader) {
+    this(new Builder().foreignKeySuffix(foreignKeySuffix).references(references).entityLoader(entityLoader));
+  }
+
+  protected JpaBeanProcessor(Builder builder) {
+    this.foreignKeySuffix = builder.foreignKeySuffix;
+    this.references = builder.references;
+    this.entityLoader = builder.entityLoader;
+    this.identityMap = builder.identityMap;
+    this.dirtyTracker = builder.dirtyTracker;
+    this.converters = builder.converters;
+    this.mappingExecutor = builder.mappingExecutor;
+    this.parallelMappingThreshold = builder.parallelMappingThreshold;
+  }
+
+  public static class Builder {
+
+    private String foreignKeySuffix = "_id";
+    private boolean references;
+    private EntityLoader entityLoader;
+    private boolean identityMap;
+    private DirtyTracker dirtyTracker;
+    private ConverterRegistry converters = ConverterRegistry.DEFAULT;
+    private ExecutorService mappingExecutor;
+    private int parallelMappingThreshold;
+
+    public JpaBeanProcessor build() {
+      return new JpaBeanProcessor(this);
+    }
+
+    /**
+     * @param foreignKeySuffix appended to the names of join columns when no name is explicitly specified in an annotation. Defaults to _id.
+     */
+    public Builder foreignKeySuffix(String foreignKeySuffix) {
+      this.foreignKeySuffix = foreignKeySuffix;
+      return this;
+    }
+
+    /**
+     * @see JpaBeanProcessor#JpaBeanProcessor(String, boolean)
+     */
+    public Builder references(boolean references) {
+      this.references = references;
+      return this;
+    }
+
+    /**
+     * @see JpaBeanProcessor#JpaBeanProcessor(String, boolean, EntityLoader)
+     */
+    public Builder entityLoader(EntityLoader entityLoader) {
+      this.entityLoader = entityLoader;
+      return this;
+    }
+
+    /**
+     * @param identityMap if true, {@link JpaBeanProcessor#toBeanList(ResultSet, Class)} uses a new {@link IdentityMap} for each ResultSet,
+     *   so that rows describing the same entity, including related entities, resolve to the same instance.
+     */
+    public Builder identityMap(boolean identityMap) {
+      this.identityMap = identityMap;
+      return this;
+    }
+
+    /**
+     * @param dirtyTracker takes a snapshot of every entity returned by {@link JpaBeanProcessor#toBean(ResultSet, Class)} and {@link JpaBeanProcessor#toBeanList(ResultSet, Class)},
+     *   and of the parents and children read by {@link OneToManyHandler}.
+     *   Give the same instance to {@link JpaQueryRunner.Builder#dirtyTracker(DirtyTracker)}.
+     */
+    public Builder dirtyTracker(DirtyTracker dirtyTracker) {
+      this.dirtyTracker = dirtyTracker;
+      return this;
+    }
+
+    /**
+     * @param converters chooses how properties are converted from their columns. Defaults to {@link ConverterRegistry#DEFAULT}.
+     *   Give the same instance to {@link JpaQueryRunner.Builder#converters(ConverterRegistry)}.
+     */
+    public Builder converters(ConverterRegistry converters) {
+      this.converters = converters;
+      return this;
+    }
+
+    /**
+     * Makes {@link JpaBeanProcessor#toBeanList(ResultSet, Class)} map large results on several threads. The first minRows rows are mapped as usual.
+     * If there are more, the calling thread reads the following rows with the same getters as the serial path, and executor sets the values on entities in chunks of
+     * {@value JpaBeanProcessor#PARALLEL_MAPPING_CHUNK_SIZE} rows. Conversions also run on executor. The order of the results is preserved.
+     *
+     * Not used when mapping through an {@link IdentityMap}, which is not thread-safe. Columns whose values become invalid once the ResultSet moves to the next row, such as Blobs, are not supported.
+     *
+     * @param executor runs the mapping tasks. It is not shut down by the processor.
+     * @param minRows number of rows above which mapping is done in parallel. Must be positive.
+     */
+    public Builder parallelMapping(ExecutorService executor, int minRows) {
+      if (minRows < 1) {
+        throw new IllegalArgumentException("minRows must be positive, was " + minRows);
+      }
+      this.mappingExecutor = executor;
+      this.parallelMappingThreshold = minRows;
+      return this;
+    }
   }
 
   @Override
   public <T> T toBean(ResultSet rs, Class<T> type) throws SQLException {
     checkIsEntity(type);
-    PropertyDescriptorWrapper[] props = propertyDescriptors(type);
 
-    ResultSetMetaData rsmd = rs.getMetaData();
-    int[] columnToProperty = mapColumnsToProperties(rsmd, props);
+    return track(rowMapper(rs.getMetaData(), type).map(rs));
+  }
 
-    return createBean(rs, type, props, columnToProperty);
+  /**
+   * Like {@link #toBean(ResultSet, Class)}, with a mapper created for the ResultSet by {@link #rowMapper(ResultSetMetaData, Class)}.
+   */
+  <T> T toBean(ResultSet rs, RowMapper<T> rowMapper) throws SQLException {
+    return track(rowMapper.map(rs));
   }
 
   @Override
   public <T> List<T> toBeanList(ResultSet rs, Class<T> type) throws SQLException {
+    return toBeanList(rs, type, newIdentityMap());
+  }
+
+  /**
+   * Like {@link #toBeanList(ResultSet, Class)}, but resolves entities through the given identity map. Passing the same map to several calls makes them share instances.
+   *
+   * @param identityMap may be null, in which case every row is mapped to a new instance.
+   */
+  public <T> List<T> toBeanList(ResultSet rs, Class<T> type, IdentityMap identityMap) throws SQLException {
     checkIsEntity(type);
 
     if (!rs.next()) {
@@ -85,155 +230,280 @@ public class JpaBeanProcessor extends BeanProcessor {
     }
 
     List<T> results = new ArrayList<T>();
-
-    PropertyDescriptorWrapper[] props = propertyDescriptors(type);
-    ResultSetMetaData rsmd = rs.getMetaData();
-    int[] columnsToProperties = mapColumnsToProperties(rsmd, props);
+    RowMapper<T> rowMapper = rowMapper(rs.getMetaData(), type);
 
     do {
-      results.add(this.createBean(rs, type, props, columnsToProperties));
+      results.add(track(rowMapper.map(rs, identityMap)));
+
+      if (identityMap == null && mappingExecutor != null && results.size() == parallelMappingThreshold) {
+        mapInParallel(rs, rowMapper, results);
+        break;
+      }
     } while (rs.next());
 
     return results;
   }
 
+  /**
+   * Extracts the values of the remaining rows of rs with rowMapper's getters, sets them on entities on {@link #mappingExecutor} and appends the entities to results, in order.
+   */
+  private <T> void mapInParallel(ResultSet rs, RowMapper<T> rowMapper, List<T> results) throws SQLException {
+    List<Future<List<T>>> chunks = new ArrayList<Future<List<T>>>();
+    List<Object[]> rows = new ArrayList<Object[]>(PARALLEL_MAPPING_CHUNK_SIZE);
+
+    try {
+      while (rs.next()) {
+        rows.add(rowMapper.extract(rs));
+
+        if (rows.size() == PARALLEL_MAPPING_CHUNK_SIZE) {
+          chunks.add(mappingExecutor.submit(new ChunkMapper<T>(rowMapper, rows)));
+          rows = new ArrayList<Object[]>(PARALLEL_MAPPING_CHUNK_SIZE);
+        }
+      }
+
+      if (!rows.isEmpty()) {
+        chunks.add(mappingExecutor.submit(new ChunkMapper<T>(rowMapper, rows)));
+      }
+
+      for (Future<List<T>> chunk : chunks) {
+        results.addAll(chunk.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while mapping rows", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new SQLException(cause);
+    } finally {
+      for (Future<List<T>> chunk : chunks) {
+        chunk.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Maps a chunk of extracted rows.
+   */
+  private final class ChunkMapper<T> implements Callable<List<T>> {
+    private final RowMapper<T> rowMapper;
+    private final List<Object[]> rows;
+
+    ChunkMapper(RowMapper<T> rowMapper, List<Object[]> rows) {
+      this.rowMapper = rowMapper;
+      this.rows = rows;
+    }
+
+    @Override
+    public List<T> call() throws SQLException {
+      List<T> entities = new ArrayList<T>(rows.size());
+      for (Object[] row : rows) {
+        entities.add(track(rowMapper.map(row)));
+      }
+
+      return entities;
+    }
+  }
+
+  /**
+   * Takes a snapshot of entity if a {@link DirtyTracker} is configured.
+   */
+  <T> T track(T entity) {
+    if (dirtyTracker != null) {
+      dirtyTracker.snapshot(entity);
+    }
+
+    return entity;
+  }
+
+  /**
+   * @return A new IdentityMap if this processor was built with {@link Builder#identityMap(boolean)}, null otherwise.
+   */
+  IdentityMap newIdentityMap() {
+    return identityMap ? new IdentityMap() : null;
+  }
+
+  /**
+   * @return The mapper used by {@link #toBean(ResultSet, Class)} and {@link #toBeanList(ResultSet, Class)}. Created the first time type is mapped from a given set of columns, and reused afterwards.
+   */
+  @SuppressWarnings("unchecked")
+  <T> RowMapper<T> rowMapper(ResultSetMetaData rsmd, Class<T> type) throws SQLException {
+    ResultSetShape shape = ResultSetShape.of(type, rsmd);
+    RowMapper<T> rowMapper = (RowMapper<T>) rowMappers.get(shape);
+
+    if (rowMapper == null) {
+      rowMapper = createRowMapper(rsmd, type);
+      RowMapper<T> existing = (RowMapper<T>) rowMappers.putIfAbsent(shape, rowMapper);
+      if (existing != null) {
+        rowMapper = existing;
+      }
+    }
+
+    return rowMapper;
+  }
+
   @Override
   protected int[] mapColumnsToProperties(ResultSetMetaData rsmd, PropertyDescriptor[] props) throws SQLException {
+    PropertyDescriptorWrapper[] propertyDescriptorWrappers = new PropertyDescriptorWrapper[props.length];
+    System.arraycopy(props, 0, propertyDescriptorWrappers, 0, props.length);
+
+    return mapColumnsToProperties(rsmd, EntityMetadata.columnIndex(propertyDescriptorWrappers, foreignKeySuffix));
+  }
 
+  private int[] mapColumnsToProperties(ResultSetMetaData rsmd, Map<String, Integer> columnIndex) throws SQLException {
     int cols = rsmd.getColumnCount();
     int[] columnToProperty = new int[cols + 1];
     Arrays.fill(columnToProperty, PROPERTY_NOT_FOUND);
 
     for (int col = 1; col <= cols; col++) {
-      String columnName = rsmd.getColumnLabel(col);
-      if (columnName == null || columnName.length() == 0) {
-        columnName = rsmd.getColumnName(col);
+      Integer property = columnIndex.get(EntityMetadata.normalize(columnName(rsmd, col)));
+
+      if (property != null) {
+        columnToProperty[col] = property.intValue();
       }
-      for (int i = 0; i < props.length; i++) {
-        PropertyDescriptorWrapper propertyDescriptor = (PropertyDescriptorWrapper) props[i];
-        String propertyName = propertyDescriptor.getColumnName(foreignKeySuffix);
+    }
+
+    return columnToProperty;
+  }
+
+  /**
+   * Matches the columns of the ResultSet to the properties of type with {@link #mapColumnsToProperties(ResultSetMetaData, PropertyDescriptor[])}, and chooses the ResultSet getter used to read each column.
+   * The columns of ToOne relations are matched at the same time. Done once per ResultSet, rather than for every row.
+   */
+  <T> RowMapper<T> createRowMapper(ResultSetMetaData rsmd, Class<T> type) throws SQLException {
+    PropertyDescriptorWrapper[] props = propertyDescriptors(type);
+    PropertyDescriptorWrapper idProperty = EntityMetadata.of(type).getIdProperty();
+    int[] columnToProperty = mapColumnsToProperties(rsmd, props);
+    List<ColumnReader> readers = new ArrayList<ColumnReader>();
+    int idColumn = PROPERTY_NOT_FOUND;
 
-        if (columnName.equalsIgnoreCase(propertyName)) {
-          columnToProperty[col] = i;
-          break;
+    for (int i = 1; i < columnToProperty.length; i++) {
+      if (columnToProperty[i] != PROPERTY_NOT_FOUND) {
+        readers.add(ColumnReader.create(this, rsmd, props[columnToProperty[i]], i));
+        if (idColumn == PROPERTY_NOT_FOUND && props[columnToProperty[i]] == idProperty) {
+          idColumn = i;
         }
       }
     }
 
-    return columnToProperty;
+    return new RowMapper<T>(this, type, readers.toArray(new ColumnReader[readers.size()]), idColumn, idProperty != null ? idProperty.getPropertyType() : null);
   }
 
+  /**
+   * Uses the no-argument constructor cached by {@link EntityMetadata}, which does not need to be public.
+   */
   @Override
   protected <T> T newInstance(Class<T> c) throws SQLException {
-    try {
-      Constructor<T> constructor = c.getConstructor();
-      if (Modifier.isProtected(constructor.getModifiers())) {
-        constructor.setAccessible(true);
-      }
-
-      return constructor.newInstance();
-    } catch (InstantiationException e) {
-      throw new RuntimeException(e);
-    } catch (IllegalAccessException e) {
-      throw new RuntimeException(e);
-    } catch (InvocationTargetException e) {
-      throw new RuntimeException(e.getCause());
-    } catch (NoSuchMethodException e) {
-      throw new RuntimeException(e);
-    }
+    return c.cast(EntityMetadata.of(c).newInstance());
   }
 
   private <T> PropertyDescriptorWrapper[] propertyDescriptors(Class<T> type) {
-    AccessibleObject idAccessor = getIdAccessor(type);
+    return EntityMetadata.of(type).getProperties();
+  }
 
-    PropertyDescriptorWrapper[] propertyDescriptors;
-    if (idAccessor instanceof Method) {
-      propertyDescriptors = PropertyDescriptorWrapper.getPropertyDescriptorsFromMethods(type);
-    } else {
-      propertyDescriptors = PropertyDescriptorWrapper.getPropertyDescriptorsFromFields(type);
+  <T> void checkIsEntity(Class<T> type) {
+    if (!type.isAnnotationPresent(Entity.class)) {
+      throw new IllegalArgumentException(type.getName() + " is not a JPA @Entity");
     }
-    return propertyDescriptors;
   }
 
-  private <T> AccessibleObject getIdAccessor(Class<T> type) {
-    return Entities.getIdAccessor(type);
-  }
+  /**
+   * @return The value of the column, or the default value of a primitive type if the column is null.
+   */
+  Object readColumn(ResultSet rs, int index, Class<?> propType) throws SQLException {
+    Object value = this.processColumn(rs, index, propType);
 
-  private <T> void checkIsEntity(Class<T> type) {
-    if (!type.isAnnotationPresent(Entity.class)) {
-      throw new IllegalArgumentException(type.getName() + " is not a JPA @Entity");
+    if (propType != null && value == null && propType.isPrimitive()) {
+      value = primitiveDefaults.get(propType);
     }
+
+    return value;
   }
 
   /**
-   * Creates a new object and initializes its fields from the ResultSet.
+   * Like {@link #createRowMapper(ResultSetMetaData, Class)}, but only maps the columns that belong to type's table, for rows containing several entities with overlapping column names.
+   */
+  <T> RowMapper<T> createTableRowMapper(ResultSetMetaData rsmd, Class<T> type) throws SQLException {
+    PropertyDescriptorWrapper idProperty = EntityMetadata.of(type).getIdProperty();
+    int idColumn = idProperty != null ? idColumn(rsmd, type) : PROPERTY_NOT_FOUND;
+
+    return new RowMapper<T>(this, type, tableReaders(rsmd, type, true), idColumn, idProperty != null ? idProperty.getPropertyType() : null);
+  }
+
+  /**
+   * Matches the columns of the ResultSet that belong to joinType's table to its properties. The relations of joinType are not followed.
+   * Done once per ResultSet, so that reading a related entity from a row does not require any metadata lookups.
    *
-   * @param <T>
-   *          The type of bean to create
-   * @param rs
-   *          The result set.
-   * @param type
-   *          The bean type (the return type of the object).
-   * @param props
-   *          The property descriptors.
-   * @param columnToProperty
-   *          The column indices in the result set.
-   * @return An initialized object.
-   * @throws SQLException
-   *           if a database error occurs.
+   * @return The readers for joinType's columns. Empty if the ResultSet does not contain any.
    */
-  private <T> T createBean(ResultSet rs, Class<T> type, PropertyDescriptorWrapper[] props, int[] columnToProperty)
-      throws SQLException {
+  ColumnReader[] joinReaders(ResultSetMetaData rsmd, Class<?> joinType) throws SQLException {
+    return tableReaders(rsmd, joinType, false);
+  }
 
-    T bean = this.newInstance(type);
+  private ColumnReader[] tableReaders(ResultSetMetaData rsmd, Class<?> type, boolean followRelations) throws SQLException {
+    EntityMetadata metadata = EntityMetadata.of(type);
+    String tableName = metadata.getTableName();
+    PropertyDescriptorWrapper[] props = metadata.getProperties();
+    Map<String, Integer> columnIndex = metadata.getColumnIndex(foreignKeySuffix);
+    List<ColumnReader> readers = new ArrayList<ColumnReader>();
 
-    for (int i = 1; i < columnToProperty.length; i++) {
-      if (columnToProperty[i] == PROPERTY_NOT_FOUND) {
+    for (int col = 1; col <= rsmd.getColumnCount(); col++) {
+      if (!tableName.equalsIgnoreCase(rsmd.getTableName(col))) {
         continue;
       }
 
-      PropertyDescriptorWrapper prop = props[columnToProperty[i]];
-      Class<?> propType = prop.getPropertyType();
-      Object value = null;
-      AccessibleObject accessibleObject = prop.getAccessibleObject();
-      if (Entities.isRelation(accessibleObject)) {
-        String tableName = Entities.getName(prop.getPropertyType());
-        ResultSetMetaData metaData = rs.getMetaData();
-
-        if (Entities.isToOneRelation(accessibleObject)) {
-          Class<?> joinType = prop.getPropertyType();
-          PropertyDescriptorWrapper[] joinPropertyDescriptors = propertyDescriptors(joinType);
-          for (int j = 1; j <= metaData.getColumnCount(); j++) {
-            if (!tableName.equalsIgnoreCase(metaData.getTableName(j))) {
-              continue;
-            }
-
-            String joinColumnName = metaData.getColumnLabel(j);
-
-            for (PropertyDescriptorWrapper joinPropertyDescriptor : joinPropertyDescriptors) {
-              if (Entities.getName(joinPropertyDescriptor.getAccessibleObject()).equalsIgnoreCase(joinColumnName)) {
-                if (value == null) {
-                  value = newInstance(joinType);
-                }
-
-                callSetter(value, joinPropertyDescriptor, processColumn(rs, j, joinPropertyDescriptor.getPropertyType()));
-                break;
-              }
-            }
-          }
-        }
-      } else {
-        value = this.processColumn(rs, i, propType);
+      Integer property = columnIndex.get(EntityMetadata.normalize(columnName(rsmd, col)));
+      if (property != null && (followRelations || !props[property.intValue()].isRelation())) {
+        readers.add(ColumnReader.create(this, rsmd, props[property.intValue()], col));
+      }
+    }
 
-        if (propType != null && value == null && propType.isPrimitive()) {
-          value = primitiveDefaults.get(propType);
-        }
+    return readers.toArray(new ColumnReader[readers.size()]);
+  }
+
+  /**
+   * @return The index of the column containing type's id, or {@link #PROPERTY_NOT_FOUND} if the ResultSet does not contain it.
+   */
+  static int idColumn(ResultSetMetaData rsmd, Class<?> type) throws SQLException {
+    EntityMetadata metadata = EntityMetadata.of(type);
+
+    for (int col = 1; col <= rsmd.getColumnCount(); col++) {
+      if (metadata.getTableName().equalsIgnoreCase(rsmd.getTableName(col)) && metadata.getIdColumnName().equalsIgnoreCase(columnName(rsmd, col))) {
+        return col;
       }
+    }
+
+    return PROPERTY_NOT_FOUND;
+  }
+
+  boolean createsReferences() {
+    return references;
+  }
+
+  /**
+   * @return May be null.
+   */
+  EntityLoader getEntityLoader() {
+    return entityLoader;
+  }
+
+  ConverterRegistry getConverters() {
+    return converters;
+  }
 
-      this.callSetter(bean, prop, value);
+  static String columnName(ResultSetMetaData rsmd, int col) throws SQLException {
+    String columnName = rsmd.getColumnLabel(col);
+    if (columnName == null || columnName.length() == 0) {
+      columnName = rsmd.getColumnName(col);
     }
 
-    return bean;
+    return columnName;
   }
 
   /**
@@ -249,7 +519,7 @@ public class JpaBeanProcessor extends BeanProcessor {
    * @throws SQLException
    *           if an error occurs setting the property.
    */
-  private void callSetter(Object target, PropertyDescriptorWrapper prop, Object value) throws SQLException {
+  void callSetter(Object target, PropertyDescriptorWrapper prop, Object value) throws SQLException {
 
     Class<?> parameterType = prop.getPropertyType();
     try {
@@ -260,7 +530,7 @@ public class JpaBeanProcessor extends BeanProcessor {
 
       // Don't call setter if the value object isn't the right type
       if (this.isCompatibleType(value, parameterType)) {
-        prop.set(target, value);
+        prop.getAccessor().set(target, value);
       } else {
         throw new SQLException("Cannot set " + prop.getName() + ": incompatible types.");
       }
@@ -271,16 +541,14 @@ public class JpaBeanProcessor extends BeanProcessor {
   }
 
   private Object convert(Object value, Class<?> parameterType) {
-    if (value instanceof java.util.Date) {
-      if (parameterType.getName().equals("java.sql.Date")) {
+    if (value instanceof java.util.Date && !parameterType.isInstance(value)) {
+      if (parameterType == java.sql.Date.class) {
         value = new java.sql.Date(((java.util.Date) value).getTime());
-      } else if (parameterType.getName().equals("java.sql.Time")) {
+      } else if (parameterType == java.sql.Time.class) {
         value = new java.sql.Time(((java.util.Date) value).getTime());
-      } else if (parameterType.getName().equals("java.sql.Timestamp")) {
+      } else if (parameterType == java.sql.Timestamp.class) {
         value = new java.sql.Timestamp(((java.util.Date) value).getTime());
       }
-    } else if (Enum.class.isAssignableFrom(parameterType)) {
-      value = Enum.valueOf((Class<Enum>)parameterType, (String) value);
     }
     return value;
   }
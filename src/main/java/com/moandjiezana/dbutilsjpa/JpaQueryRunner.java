@@ -1,23 +1,37 @@
 package com.moandjiezana.dbutilsjpa;
 
+import com.moandjiezana.dbutilsjpa.QueryMetrics.Operation;
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+import com.moandjiezana.dbutilsjpa.internal.PropertyAccessor;
 import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
 
-import java.lang.reflect.AccessibleObject;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Member;
-import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-
-import javax.persistence.Column;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.commons.dbutils.BasicRowProcessor;
+import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.dbutils.RowProcessor;
 import org.apache.commons.dbutils.handlers.BeanHandler;
+import org.apache.commons.dbutils.handlers.BeanListHandler;
+import org.apache.commons.dbutils.handlers.ColumnListHandler;
 import org.apache.commons.dbutils.handlers.ScalarHandler;
 
 /**
@@ -25,28 +39,27 @@ import org.apache.commons.dbutils.handlers.ScalarHandler;
  *
  * Immutable and thread-safe.
 */
-public class JpaQueryRunner {
+public class JpaQueryRunner implements EntityLoader {
 
   public static final ScalarHandler<Long> DEFAULT_GENERATED_KEYS_HANDLER = new ScalarHandler<Long>();
   public static final SqlWriter DEFAULT_SQL_WRITER = new SqlWriter();
-  public static final BasicRowProcessor DEFAULT_ROW_PROCESSOR = new BasicRowProcessor(new JpaBeanProcessor());
+  private static final JpaBeanProcessor DEFAULT_BEAN_PROCESSOR = new JpaBeanProcessor();
+  public static final BasicRowProcessor DEFAULT_ROW_PROCESSOR = new BasicRowProcessor(DEFAULT_BEAN_PROCESSOR);
+  public static final int DEFAULT_FETCH_SIZE = 0;
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+  public static final int DEFAULT_MAX_PARAMETERS = 2000;
+  public static final int DEFAULT_IN_LIST_SIZE = 256;
+  private static final int EVICTION_STRIPES = 64;
+  private static final ColumnListHandler<Object> GENERATED_KEYS_LIST_HANDLER = new ColumnListHandler<Object>(1);
   public static final NewEntityTester DEFAULT_ENTITY_TESTER = new NewEntityTester() {
     @Override
     public boolean isNew(Object entity) {
-      AccessibleObject idAccessor = Entities.getIdAccessor(entity.getClass());
-      try {
-        if (idAccessor instanceof Field) {
-          Field field = (Field) idAccessor;
-
-          return field.get(entity) == null;
-        } else {
-          return ((Method) idAccessor).invoke(entity) == null;
-        }
-      } catch (IllegalAccessException e) {
-        throw new RuntimeException(e);
-      } catch (InvocationTargetException e) {
-        throw new RuntimeException(e.getCause());
+      PropertyDescriptorWrapper idProperty = EntityMetadata.of(entity.getClass()).getIdProperty();
+      if (idProperty == null) {
+        throw new IllegalArgumentException(entity.getClass().getName() + " does not have an @Id property");
       }
+
+      return idProperty.getAccessor().get(entity) == null;
     }
   };
 
@@ -54,7 +67,22 @@ public class JpaQueryRunner {
   private final SqlWriter sqlWriter;
   private final NewEntityTester entityTester;
   private final RowProcessor rowProcessor;
+  private final JpaBeanProcessor beanProcessor;
   private final ResultSetHandler<?> generatedKeysHandler;
+  private final int fetchSize;
+  private final int batchSize;
+  private final int maxParameters;
+  private final int inListSize;
+  private final EntityCache entityCache;
+  private final Set<Class<?>> cachedClasses;
+  private final DirtyTracker dirtyTracker;
+  private final ConverterRegistry converters;
+  private final QueryMetrics metrics;
+  /**
+   * Incremented before entries are evicted, so that {@link #query(Class, Object)} does not cache a row read before the eviction. Indexed by {@link #evictionStripe(Class, Object)}.
+   */
+  private final AtomicLongArray evictions = new AtomicLongArray(EVICTION_STRIPES);
+  private final ConcurrentMap<Class<?>, PropertyConverters> propertyConverters = new ConcurrentHashMap<Class<?>, PropertyConverters>();
 
   public static class Builder {
 
@@ -62,9 +90,19 @@ public class JpaQueryRunner {
     private NewEntityTester entityTester;
     private ResultSetHandler<?> generatedKeysHandler;
     private RowProcessor rowProcessor;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int maxParameters = DEFAULT_MAX_PARAMETERS;
+    private int inListSize = DEFAULT_IN_LIST_SIZE;
+    private boolean lazyReferences;
+    private EntityCache entityCache;
+    private final Set<Class<?>> cachedClasses = new HashSet<Class<?>>();
+    private DirtyTracker dirtyTracker;
+    private ConverterRegistry converters;
+    private QueryMetrics metrics;
 
     public JpaQueryRunner build(QueryRunner queryRunner) {
-      return new JpaQueryRunner(queryRunner, choose(this.sqlWriter, DEFAULT_SQL_WRITER), choose(this.entityTester, DEFAULT_ENTITY_TESTER), choose(this.rowProcessor, DEFAULT_ROW_PROCESSOR), choose(this.generatedKeysHandler, DEFAULT_GENERATED_KEYS_HANDLER));
+      return new JpaQueryRunner(queryRunner, this);
     }
 
     public Builder sqlWriter(SqlWriter sqlWriter) {
@@ -87,6 +125,100 @@ public class JpaQueryRunner {
       return this;
     }
 
+    /**
+     * @param fetchSize Passed to {@link java.sql.Statement#setFetchSize(int)} by the stream methods. If 0, the driver's default is used.
+     */
+    public Builder fetchSize(int fetchSize) {
+      this.fetchSize = fetchSize;
+      return this;
+    }
+
+    /**
+     * @param batchSize Maximum number of statements sent in a single JDBC batch by saveAll. Must be positive.
+     */
+    public Builder batchSize(int batchSize) {
+      if (batchSize < 1) {
+        throw new IllegalArgumentException("batchSize must be positive, was " + batchSize);
+      }
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * @param maxParameters Maximum number of parameters in a single statement generated by insertAll. Must be positive.
+     */
+    public Builder maxParameters(int maxParameters) {
+      if (maxParameters < 1) {
+        throw new IllegalArgumentException("maxParameters must be positive, was " + maxParameters);
+      }
+      this.maxParameters = maxParameters;
+      return this;
+    }
+
+    /**
+     * @param inListSize Maximum number of ids in a single IN list generated by queryAll. Must be positive.
+     */
+    public Builder inListSize(int inListSize) {
+      if (inListSize < 1) {
+        throw new IllegalArgumentException("inListSize must be positive, was " + inListSize);
+      }
+      this.inListSize = inListSize;
+      return this;
+    }
+
+    /**
+     * If true, entities are mapped by a {@link JpaBeanProcessor} that loads {@link LazyReference} properties through the JpaQueryRunner being built,
+     * and sets ToOne relations declared with fetch = FetchType.LAZY to references containing only the id when their table is not queried.
+     * Cannot be combined with {@link #rowProcessor(RowProcessor)}: pass a JpaQueryRunner to {@link JpaBeanProcessor#JpaBeanProcessor(String, boolean, EntityLoader)} instead.
+     */
+    public Builder lazyReferences(boolean lazyReferences) {
+      this.lazyReferences = lazyReferences;
+      return this;
+    }
+
+    /**
+     * Caches the entities returned by {@link JpaQueryRunner#query(Class, Object)}. They are evicted when saved or deleted through the JpaQueryRunner.
+     * Changes made by other means are only seen once the cached entry expires.
+     *
+     * @param entityCache stores the entities. See {@link LruEntityCache}.
+     * @param entityClasses the entity classes to cache. Classes annotated with @Cacheable are cached even if they are not listed.
+     */
+    public Builder entityCache(EntityCache entityCache, Class<?>... entityClasses) {
+      this.entityCache = entityCache;
+      this.cachedClasses.addAll(Arrays.asList(entityClasses));
+      return this;
+    }
+
+    /**
+     * Makes {@link JpaQueryRunner#save(Object)} and {@link JpaQueryRunner#saveAll(Collection)} only update the columns of tracked entities that have changed,
+     * and skip the ones that have not changed at all. Saved entities are tracked from then on.
+     *
+     * If no RowProcessor is set, the entities returned by the JpaQueryRunner are tracked. Otherwise, pass the same DirtyTracker to {@link JpaBeanProcessor.Builder#dirtyTracker(DirtyTracker)}.
+     */
+    public Builder dirtyTracker(DirtyTracker dirtyTracker) {
+      this.dirtyTracker = dirtyTracker;
+      return this;
+    }
+
+    /**
+     * @param converters chooses how property values and query parameters are converted to their columns. Defaults to {@link ConverterRegistry#DEFAULT}.
+     *
+     * If no RowProcessor is set, entities are also read with it. Otherwise, pass the same ConverterRegistry to {@link JpaBeanProcessor.Builder#converters(ConverterRegistry)}.
+     */
+    public Builder converters(ConverterRegistry converters) {
+      this.converters = converters;
+      return this;
+    }
+
+    /**
+     * @param metrics receives the duration of each operation, split between SQL generation, execution and mapping, as well as row counts, batch sizes and cache accesses.
+     *   See {@link QueryStatistics}. Defaults to {@link QueryMetrics#NONE}, which does not read the clock.
+     */
+    public Builder metrics(QueryMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
     private <T> T choose(T value, T fallback) {
       return value != null ? value : fallback;
     }
@@ -98,11 +230,33 @@ public class JpaQueryRunner {
 
   public JpaQueryRunner(QueryRunner queryRunner, SqlWriter sqlWriter, NewEntityTester entityTester,
       RowProcessor rowProcessor, ResultSetHandler<?> generatedKeysHandler) {
+    this(queryRunner, new Builder().sqlWriter(sqlWriter).entityTester(entityTester).rowProcessor(rowProcessor).generatedKeysHandler(generatedKeysHandler));
+  }
+
+  private JpaQueryRunner(QueryRunner queryRunner, Builder builder) {
     this.queryRunner = queryRunner;
-    this.sqlWriter = sqlWriter;
-    this.entityTester = entityTester;
-    this.rowProcessor = rowProcessor;
-    this.generatedKeysHandler = generatedKeysHandler;
+    this.sqlWriter = builder.choose(builder.sqlWriter, DEFAULT_SQL_WRITER);
+    this.entityTester = builder.choose(builder.entityTester, DEFAULT_ENTITY_TESTER);
+    if (builder.lazyReferences && builder.rowProcessor != null) {
+      throw new IllegalStateException("lazyReferences cannot be combined with a custom RowProcessor");
+    }
+    this.converters = builder.choose(builder.converters, ConverterRegistry.DEFAULT);
+    if (builder.rowProcessor == null && (builder.lazyReferences || builder.dirtyTracker != null || builder.converters != null)) {
+      this.beanProcessor = new JpaBeanProcessor.Builder().entityLoader(builder.lazyReferences ? this : null).dirtyTracker(builder.dirtyTracker).converters(converters).build();
+      this.rowProcessor = new BasicRowProcessor(beanProcessor);
+    } else {
+      this.rowProcessor = builder.choose(builder.rowProcessor, DEFAULT_ROW_PROCESSOR);
+      this.beanProcessor = rowProcessor == DEFAULT_ROW_PROCESSOR ? DEFAULT_BEAN_PROCESSOR : null;
+    }
+    this.generatedKeysHandler = builder.choose(builder.generatedKeysHandler, DEFAULT_GENERATED_KEYS_HANDLER);
+    this.fetchSize = builder.fetchSize;
+    this.batchSize = builder.batchSize;
+    this.maxParameters = builder.maxParameters;
+    this.inListSize = builder.inListSize;
+    this.entityCache = builder.entityCache;
+    this.cachedClasses = new HashSet<Class<?>>(builder.cachedClasses);
+    this.dirtyTracker = builder.dirtyTracker;
+    this.metrics = builder.choose(builder.metrics, QueryMetrics.NONE);
   }
 
   /**
@@ -120,91 +274,993 @@ public class JpaQueryRunner {
    *           second argument is is not a valid type for that entity&apos;s
    *           primary key or is null
    */
+  @Override
   public <T> T query(Class<T> entityClass, Object primaryKey) {
+    OperationTimer timer = OperationTimer.start(metrics, Operation.QUERY, entityClass);
+    boolean cached = isCached(entityClass);
+    long evictionStamp = 0;
+    if (cached) {
+      evictionStamp = evictions.get(evictionStripe(entityClass, cacheId(primaryKey)));
+      Object[] values = (Object[]) entityCache.get(entityClass, cacheId(primaryKey));
+      timer.cacheAccessed(values != null);
+      if (values != null) {
+        T entity = track(entityClass.cast(fromCacheValues(EntityMetadata.of(entityClass), values)));
+        timer.rows(1);
+        timer.completed();
+
+        return entity;
+      }
+    }
+
+    try {
+      String sql = sqlWriter.selectById(entityClass);
+      timer.sqlBuilt();
+      T entity = entityClass.cast(queryRunner.query(sql, timer.mapping(new BeanHandler<T>(entityClass, rowProcessor)), converters.toColumnValue(primaryKey)));
+      timer.executed();
+
+      if (cached && entity != null) {
+        cache(entityClass, cacheId(primaryKey), toCacheValues(EntityMetadata.of(entityClass), entity), evictionStamp);
+      }
+
+      timer.rows(entity != null ? 1 : 0);
+      timer.completed();
+
+      return entity;
+    } catch (SQLException e) {
+      timer.failed();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Find by primary keys. Ids are sent in IN lists of at most {@link Builder#inListSize(int)} elements.
+   * Smaller lists are padded to the next power of two, so that few distinct statements are generated.
+   *
+   * @param primaryKeys duplicates are ignored
+   * @return the entities found, in no particular order. Entities that do not exist are omitted.
+   */
+  public <T> List<T> queryAll(Class<T> entityClass, Collection<?> primaryKeys) {
+    OperationTimer timer = OperationTimer.start(metrics, Operation.QUERY_ALL, entityClass);
+    List<T> entities = new ArrayList<T>(primaryKeys.size());
+    ResultSetHandler<List<T>> handler = timer.mapping(new BeanListHandler<T>(entityClass, rowProcessor));
+    List<Object> distinctPrimaryKeys = new ArrayList<Object>(new LinkedHashSet<Object>(primaryKeys));
+
     try {
-      return entityClass.cast(queryRunner.query(sqlWriter.selectById(entityClass), new BeanHandler<T>(
-          entityClass, rowProcessor), primaryKey));
+      for (int from = 0; from < distinctPrimaryKeys.size(); from += inListSize) {
+        Object[] params = inListParams(distinctPrimaryKeys.subList(from, Math.min(from + inListSize, distinctPrimaryKeys.size())));
+        String sql = sqlWriter.selectByIds(entityClass, params.length);
+        timer.sqlBuilt();
+        entities.addAll(queryRunner.query(sql, handler, params));
+        timer.executed();
+      }
     } catch (SQLException e) {
+      timer.failed();
       throw new RuntimeException(e);
     }
+
+    timer.rows(entities.size());
+    timer.completed();
+
+    return entities;
+  }
+
+  /**
+   * Like {@link #queryAll(Class, Collection)}, but returns the entities keyed by primary key.
+   */
+  public <T> Map<Object, T> queryAllById(Class<T> entityClass, Collection<?> primaryKeys) {
+    PropertyDescriptorWrapper idProperty = EntityMetadata.of(entityClass).getIdProperty();
+    Map<Object, T> entitiesById = new LinkedHashMap<Object, T>();
+
+    for (T entity : queryAll(entityClass, primaryKeys)) {
+      entitiesById.put(idProperty.getAccessor().get(entity), entity);
+    }
+
+    return entitiesById;
+  }
+
+  /**
+   * Loads the ToOne relations of entities with one query per relation and chunk of ids, rather than one query per entity.
+   * The references set by a {@link JpaBeanProcessor} created with references enabled are replaced by the entities they refer to.
+   * References to entities that do not exist are left as they are. {@link LazyReference} properties are not loaded.
+   *
+   * @param properties names of the ToOne properties to load. If omitted, all of them are loaded.
+   * @return entities
+   */
+  public <T> List<T> fetchRelations(Class<T> entityClass, List<T> entities, String... properties) {
+    List<String> propertyNames = Arrays.asList(properties);
+
+    for (PropertyDescriptorWrapper relation : EntityMetadata.of(entityClass).getRelations()) {
+      if (!relation.isToOneRelation() || relation.getPropertyType() == LazyReference.class || (!propertyNames.isEmpty() && !propertyNames.contains(relation.getName()))) {
+        continue;
+      }
+
+      PropertyAccessor joinIdAccessor = EntityMetadata.of(relation.getPropertyType()).getIdProperty().getAccessor();
+      Set<Object> ids = new LinkedHashSet<Object>();
+      for (T entity : entities) {
+        Object reference = relation.get(entity);
+        if (reference != null) {
+          ids.add(joinIdAccessor.get(reference));
+        }
+      }
+
+      if (ids.isEmpty()) {
+        continue;
+      }
+
+      Map<Object, ?> related = queryAllById(relation.getPropertyType(), ids);
+      for (T entity : entities) {
+        Object reference = relation.get(entity);
+        if (reference != null && related.containsKey(joinIdAccessor.get(reference))) {
+          relation.set(entity, related.get(joinIdAccessor.get(reference)));
+        }
+      }
+    }
+
+    return entities;
   }
 
   /**
    * Insert if new, update if already exists.
    *
+   * With a {@link Builder#dirtyTracker(DirtyTracker)}, only the changed columns of a tracked entity are updated, and nothing is done if none changed.
+   *
    * @param entity
    * @return The number of rows updated
    */
   public int save(Object entity) {
+    Class<? extends Object> entityClass = entity.getClass();
+    OperationTimer timer = OperationTimer.start(metrics, Operation.SAVE, entityClass);
+
     try {
-      Class<? extends Object> entityClass = entity.getClass();
       boolean isNew = entityTester.isNew(entity);
+      EntityMetadata metadata = EntityMetadata.of(entityClass);
+      int count;
 
-      AccessibleObject idAccessor = Entities.getIdAccessor(entityClass);
-      List<PropertyDescriptorWrapper> relevantPropertyDescriptors = new ArrayList<PropertyDescriptorWrapper>();
-      PropertyDescriptorWrapper idPropertyDescriptor = null;
-      PropertyDescriptorWrapper[] propertyDescriptorWrappers = null;
-      if (idAccessor instanceof Method) {
-        propertyDescriptorWrappers = PropertyDescriptorWrapper.getPropertyDescriptorsFromMethods(entityClass);
+      if (isNew) {
+        String sql = sqlWriter.insert(entityClass);
+        timer.sqlBuilt();
+        Object newId = queryRunner.insert(sql, generatedKeysHandler, insertArgs(entity, metadata));
+        timer.executed();
+        metadata.getIdProperty().getAccessor().set(entity, newId);
+        track(entity);
+        count = 1;
       } else {
-        propertyDescriptorWrappers = PropertyDescriptorWrapper.getPropertyDescriptorsFromFields(entityClass);
+        int[] changedProperties = dirtyTracker != null ? dirtyTracker.changedProperties(entity) : null;
+        if (changedProperties != null && changedProperties.length == 0) {
+          timer.completed();
+
+          return 0;
+        }
+
+        String sql = sqlWriter.updateById(entityClass, columnNames(metadata, changedProperties));
+        timer.sqlBuilt();
+        count = queryRunner.update(sql, updateArgs(entity, metadata, changedProperties));
+        timer.executed();
+        evict(entityClass, metadata.getIdProperty().getAccessor().get(entity));
+        track(entity);
       }
 
-      for (PropertyDescriptorWrapper propertyDescriptorWrapper : propertyDescriptorWrappers) {
-        AccessibleObject accessibleObject = propertyDescriptorWrapper.getAccessibleObject();
-        Member member = propertyDescriptorWrapper.getMember();
+      timer.rows(count);
+      timer.completed();
 
-        if (!Entities.isMapped(member.getDeclaringClass()) || Entities.isRelation(accessibleObject)) {
-          continue;
-        }
+      return count;
+    } catch (SQLException e) {
+      timer.failed();
+      throw new RuntimeException(e);
+    }
+  }
 
-        if (Entities.isIdAccessor(accessibleObject)) {
-          idPropertyDescriptor = propertyDescriptorWrapper;
-          continue;
-        }
+  /**
+   * Inserts new entities and updates existing ones, using JDBC batches. Entities are grouped by class, and each group is sent in batches of
+   * {@link Builder#batchSize(int)} statements. As with {@link #save(Object)}, the generated primary key is set on each new entity.
+   *
+   * Each batch is executed by the underlying QueryRunner, so the batches only share a transaction if the QueryRunner's connection does.
+   *
+   * @return The number of rows inserted or updated
+   */
+  public int saveAll(Collection<?> entities) {
+    Map<Class<?>, List<Object>> newEntities = new LinkedHashMap<Class<?>, List<Object>>();
+    Map<Class<?>, List<Object>> existingEntities = new LinkedHashMap<Class<?>, List<Object>>();
 
-        if (isNotSettable(isNew, accessibleObject)) {
-          continue;
-        }
+    for (Object entity : entities) {
+      addByClass(entityTester.isNew(entity) ? newEntities : existingEntities, entity);
+    }
 
-        relevantPropertyDescriptors.add(propertyDescriptorWrapper);
+    Map<Class<?>, OperationTimer> timers = new LinkedHashMap<Class<?>, OperationTimer>();
+    try {
+      int count = 0;
+      for (Map.Entry<Class<?>, List<Object>> entry : newEntities.entrySet()) {
+        count += insertBatches(entry.getKey(), entry.getValue(), timer(timers, Operation.SAVE_ALL, entry.getKey()));
+      }
+      for (Map.Entry<Class<?>, List<Object>> entry : existingEntities.entrySet()) {
+        count += updateBatches(entry.getKey(), entry.getValue(), timer(timers, Operation.SAVE_ALL, entry.getKey()));
       }
 
-      if (!isNew) {
-        relevantPropertyDescriptors.add(idPropertyDescriptor);
+      for (OperationTimer timer : timers.values()) {
+        timer.completed();
       }
 
-      Object[] args = new Object[relevantPropertyDescriptors.size()];
-      for (int i = 0; i < args.length; i++) {
-        PropertyDescriptorWrapper propertyDescriptor = relevantPropertyDescriptors.get(i);
-        args[i] = propertyDescriptor.get(entity);
-        if (args[i] != null && Enum.class.isAssignableFrom(args[i].getClass())) {
-          args[i] = args[i].toString();
-        }
+      return count;
+    } catch (SQLException e) {
+      for (OperationTimer timer : timers.values()) {
+        timer.failed();
       }
+      throw new RuntimeException(e);
+    }
+  }
 
-      if (isNew) {
-        Object newId = queryRunner.insert(sqlWriter.insert(entityClass), generatedKeysHandler, args);
-        idPropertyDescriptor.set(entity, newId);
+  /**
+   * Inserts entities with multi-row INSERT statements, each containing as many rows as fit in {@link Builder#maxParameters(int)}.
+   * Entities are grouped by class. The values of their ids are ignored and, unlike {@link #saveAll(Collection)}, generated keys are not read back.
+   *
+   * @return The number of rows inserted
+   */
+  public int insertAll(Collection<?> entities) {
+    Map<Class<?>, List<Object>> entitiesByClass = new LinkedHashMap<Class<?>, List<Object>>();
+    for (Object entity : entities) {
+      addByClass(entitiesByClass, entity);
+    }
 
-        return 1;
-      } else {
-        return queryRunner.update(sqlWriter.updateById(entityClass), args);
+    OperationTimer timer = OperationTimer.NONE;
+    try {
+      int count = 0;
+      for (Map.Entry<Class<?>, List<Object>> entry : entitiesByClass.entrySet()) {
+        timer = OperationTimer.start(metrics, Operation.INSERT_ALL, entry.getKey());
+        count += multiRowInserts(entry.getKey(), entry.getValue(), timer);
+        timer.completed();
+      }
+
+      return count;
+    } catch (SQLException e) {
+      timer.failed();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Inserts entity or, if a row with its id already exists, updates it, in a single statement. For entities whose id is assigned rather than generated.
+   * Requires a {@link SqlWriter} created with a {@link Dialect}.
+   *
+   * @return The number of rows affected, as reported by the driver. MySQL reports 2 when an existing row is updated.
+   * @throws IllegalArgumentException if entity's id is null
+   * @see SqlWriter#upsert(Class)
+   */
+  public int upsert(Object entity) {
+    Class<?> entityClass = entity.getClass();
+    EntityMetadata metadata = EntityMetadata.of(entityClass);
+    OperationTimer timer = OperationTimer.start(metrics, Operation.UPSERT, entityClass);
+
+    try {
+      String sql = sqlWriter.upsert(entityClass);
+      timer.sqlBuilt();
+      int count = queryRunner.update(sql, upsertArgs(entity, metadata));
+      timer.executed();
+      evict(entityClass, metadata.getIdProperty().getAccessor().get(entity));
+      track(entity);
+      timer.rows(count);
+      timer.completed();
+
+      return count;
+    } catch (SQLException e) {
+      timer.failed();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Like {@link #upsert(Object)}, but sends the statements in JDBC batches of at most {@link Builder#batchSize(int)} entities of the same class.
+   *
+   * @return The number of rows affected, as reported by the driver.
+   * @throws IllegalArgumentException if the id of an entity is null
+   */
+  public int upsertAll(Collection<?> entities) {
+    Map<Class<?>, List<Object>> entitiesByClass = new LinkedHashMap<Class<?>, List<Object>>();
+    for (Object entity : entities) {
+      addByClass(entitiesByClass, entity);
+    }
+
+    OperationTimer timer = OperationTimer.NONE;
+    try {
+      int count = 0;
+      for (Map.Entry<Class<?>, List<Object>> entry : entitiesByClass.entrySet()) {
+        timer = OperationTimer.start(metrics, Operation.UPSERT_ALL, entry.getKey());
+        count += upsertBatches(entry.getKey(), entry.getValue(), timer);
+        timer.completed();
       }
+
+      return count;
+    } catch (SQLException e) {
+      timer.failed();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Executes a query on a connection obtained from the QueryRunner's DataSource. Rows are mapped one at a time, as the stream is iterated.
+   * The connection, statement and ResultSet are closed when the last row has been read, when an error occurs or when the stream is closed.
+   *
+   * <pre><code>EntityStream&lt;MyEntity&gt; entities = queryRunner.stream(MyEntity.class, "SELECT * FROM MyEntity");
+   * try {
+   *   for (MyEntity entity : entities) {
+   *     // ...
+   *   }
+   * } finally {
+   *   entities.close();
+   * }</code></pre>
+   *
+   * Some drivers only fetch rows incrementally when a fetch size is set (see {@link Builder#fetchSize(int)}) and auto-commit is disabled.
+   *
+   * @throws IllegalStateException if the QueryRunner does not have a DataSource.
+   */
+  public <T> EntityStream<T> stream(Class<T> entityClass, String sql, Object... params) {
+    if (queryRunner.getDataSource() == null) {
+      throw new IllegalStateException("A QueryRunner with a DataSource is required. Use stream(Connection, Class, String, Object...) instead.");
+    }
+
+    Connection connection = null;
+    try {
+      connection = queryRunner.getDataSource().getConnection();
+
+      return stream(connection, true, entityClass, sql, params);
+    } catch (SQLException e) {
+      DbUtils.closeQuietly(connection);
+      throw new RuntimeException(e);
+    } catch (RuntimeException e) {
+      DbUtils.closeQuietly(connection);
+      throw e;
+    }
+  }
+
+  /**
+   * Like {@link #stream(Class, String, Object...)}, but uses the given connection and does not close it.
+   */
+  public <T> EntityStream<T> stream(Connection connection, Class<T> entityClass, String sql, Object... params) {
+    try {
+      return stream(connection, false, entityClass, sql, params);
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
   }
 
   public int delete(Class<?> entityClass, Object primaryKey) {
+    OperationTimer timer = OperationTimer.start(metrics, Operation.DELETE, entityClass);
+
+    try {
+      String sql = sqlWriter.deleteById(entityClass);
+      timer.sqlBuilt();
+      int count = queryRunner.update(sql, converters.toColumnValue(primaryKey));
+      timer.executed();
+      evict(entityClass, primaryKey);
+      timer.rows(count);
+      timer.completed();
+
+      return count;
+    } catch (SQLException e) {
+      timer.failed();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Deletes by primary keys, using IN lists of at most {@link Builder#inListSize(int)} elements.
+   *
+   * @param primaryKeys duplicates are ignored
+   * @return The number of rows deleted
+   */
+  public int deleteAll(Class<?> entityClass, Collection<?> primaryKeys) {
+    OperationTimer timer = OperationTimer.start(metrics, Operation.DELETE_ALL, entityClass);
+    List<Object> distinctPrimaryKeys = new ArrayList<Object>(new LinkedHashSet<Object>(primaryKeys));
+    int count = 0;
+
+    try {
+      for (int from = 0; from < distinctPrimaryKeys.size(); from += inListSize) {
+        Object[] params = inListParams(distinctPrimaryKeys.subList(from, Math.min(from + inListSize, distinctPrimaryKeys.size())));
+        String sql = sqlWriter.deleteByIds(entityClass, params.length);
+        timer.sqlBuilt();
+        count += queryRunner.update(sql, params);
+        timer.executed();
+      }
+      for (Object primaryKey : distinctPrimaryKeys) {
+        evict(entityClass, primaryKey);
+      }
+    } catch (SQLException e) {
+      timer.failed();
+      throw new RuntimeException(e);
+    }
+
+    timer.rows(count);
+    timer.completed();
+
+    return count;
+  }
+
+  /**
+   * Deletes all rows matching a condition, without loading them.
+   *
+   * <pre><code>queryRunner.deleteWhere(MyEntity.class, "age &gt; ?", 65);</code></pre>
+   *
+   * @param where SQL condition, without the WHERE keyword. May contain ? placeholders.
+   * @return The number of rows deleted
+   */
+  public int deleteWhere(Class<?> entityClass, String where, Object... params) {
+    OperationTimer timer = OperationTimer.start(metrics, Operation.DELETE_WHERE, entityClass);
+
+    try {
+      String sql = sqlWriter.deleteWhere(entityClass, where);
+      timer.sqlBuilt();
+      int count = queryRunner.update(sql, toColumnValues(params));
+      timer.executed();
+      evictAll(entityClass);
+      timer.rows(count);
+      timer.completed();
+
+      return count;
+    } catch (SQLException e) {
+      timer.failed();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Updates the given columns of all rows matching a condition, without loading them.
+   *
+   * <pre><code>Map&lt;String, Object&gt; values = new HashMap&lt;String, Object&gt;();
+   * values.put("status", Status.ARCHIVED);
+   * queryRunner.updateWhere(MyEntity.class, values, "lastLogin &lt; ?", cutOff);</code></pre>
+   *
+   * @param values New values, keyed by column name. Only updatable columns of entityClass are allowed.
+   * @param where SQL condition, without the WHERE keyword. May contain ? placeholders.
+   * @return The number of rows updated
+   * @throws IllegalArgumentException if values is empty or a key of values is not an updatable column
+   */
+  public int updateWhere(Class<?> entityClass, Map<String, ?> values, String where, Object... params) {
+    if (values.isEmpty()) {
+      throw new IllegalArgumentException("values must not be empty");
+    }
+
+    OperationTimer timer = OperationTimer.start(metrics, Operation.UPDATE_WHERE, entityClass);
+    EntityMetadata metadata = EntityMetadata.of(entityClass);
+    List<String> updatableColumnNames = Arrays.asList(metadata.getUpdatableColumnNames());
+    ColumnConverter[] updatableConverters = propertyConverters(metadata).updatable;
+    String[] columns = new String[values.size()];
+    Object[] args = new Object[values.size() + params.length];
+
+    int i = 0;
+    for (Map.Entry<String, ?> entry : values.entrySet()) {
+      int column = updatableColumnNames.indexOf(entry.getKey());
+      if (column < 0) {
+        throw new IllegalArgumentException(entry.getKey() + " is not an updatable column of " + entityClass.getName());
+      }
+      columns[i] = entry.getKey();
+      args[i] = columnValue(updatableConverters[column], entry.getValue());
+      i++;
+    }
+    System.arraycopy(toColumnValues(params), 0, args, columns.length, params.length);
+
     try {
-      return queryRunner.update(sqlWriter.deleteById(entityClass), primaryKey);
+      String sql = sqlWriter.updateWhere(entityClass, where, columns);
+      timer.sqlBuilt();
+      int count = queryRunner.update(sql, args);
+      timer.executed();
+      evictAll(entityClass);
+      timer.rows(count);
+      timer.completed();
+
+      return count;
     } catch (SQLException e) {
+      timer.failed();
       throw new RuntimeException(e);
     }
   }
 
-  private boolean isNotSettable(boolean isNew, AccessibleObject accessibleObject) {
-    return (isNew && accessibleObject.isAnnotationPresent(Column.class) && !accessibleObject.getAnnotation(Column.class).insertable()) || (!isNew && accessibleObject.isAnnotationPresent(Column.class) && !accessibleObject.getAnnotation(Column.class).updatable());
+  private <T> EntityStream<T> stream(Connection connection, boolean closeConnection, Class<T> entityClass, String sql, Object... params) throws SQLException {
+    PreparedStatement statement = null;
+    ResultSet resultSet = null;
+    try {
+      statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      if (fetchSize != 0) {
+        statement.setFetchSize(fetchSize);
+      }
+      queryRunner.fillStatement(statement, toColumnValues(params));
+      resultSet = statement.executeQuery();
+
+      return new EntityStream<T>(closeConnection ? connection : null, statement, resultSet, entityClass, rowProcessor, beanProcessor, rowMapper(resultSet, entityClass));
+    } catch (SQLException e) {
+      DbUtils.closeQuietly(resultSet);
+      DbUtils.closeQuietly(statement);
+      throw e;
+    } catch (RuntimeException e) {
+      DbUtils.closeQuietly(resultSet);
+      DbUtils.closeQuietly(statement);
+      throw e;
+    }
+  }
+
+  /**
+   * @return A RowMapper if rows are mapped by a JpaBeanProcessor, built by this JpaQueryRunner or the default one. Null if a custom RowProcessor was set.
+   */
+  private <T> RowMapper<T> rowMapper(ResultSet resultSet, Class<T> entityClass) throws SQLException {
+    if (beanProcessor == null) {
+      return null;
+    }
+
+    beanProcessor.checkIsEntity(entityClass);
+
+    return beanProcessor.rowMapper(resultSet.getMetaData(), entityClass);
+  }
+
+  private int insertBatches(Class<?> entityClass, List<Object> entities, OperationTimer timer) throws SQLException {
+    EntityMetadata metadata = EntityMetadata.of(entityClass);
+    String sql = sqlWriter.insert(entityClass);
+    timer.sqlBuilt();
+
+    for (int from = 0; from < entities.size(); from += batchSize) {
+      List<Object> batch = entities.subList(from, Math.min(from + batchSize, entities.size()));
+      Object[][] params = new Object[batch.size()][];
+      for (int i = 0; i < params.length; i++) {
+        params[i] = insertArgs(batch.get(i), metadata);
+      }
+
+      List<Object> newIds = queryRunner.insertBatch(sql, GENERATED_KEYS_LIST_HANDLER, params);
+      timer.executed();
+      timer.batch(params.length);
+      if (newIds.size() != params.length) {
+        throw new SQLException("Expected " + params.length + " generated keys from batch insert into " + metadata.getTableName() + ", but the driver returned " + newIds.size());
+      }
+
+      for (int i = 0; i < params.length; i++) {
+        metadata.getIdProperty().getAccessor().set(batch.get(i), newIds.get(i));
+        track(batch.get(i));
+      }
+    }
+    timer.rows(entities.size());
+
+    return entities.size();
+  }
+
+  /**
+   * Entities without insertable columns are inserted one row per statement, in batches, as a multi-row INSERT would have no columns to list.
+   */
+  private int multiRowInserts(Class<?> entityClass, List<Object> entities, OperationTimer timer) throws SQLException {
+    EntityMetadata metadata = EntityMetadata.of(entityClass);
+    int columns = metadata.getInsertableProperties().length;
+    if (columns == 0) {
+      return singleRowInserts(entityClass, entities.size(), timer);
+    }
+
+    int rowsPerStatement = Math.max(1, maxParameters / columns);
+    int count = 0;
+
+    for (int from = 0; from < entities.size(); from += rowsPerStatement) {
+      List<Object> chunk = entities.subList(from, Math.min(from + rowsPerStatement, entities.size()));
+      Object[] params = new Object[chunk.size() * columns];
+      for (int i = 0; i < chunk.size(); i++) {
+        System.arraycopy(insertArgs(chunk.get(i), metadata), 0, params, i * columns, columns);
+      }
+
+      String sql = sqlWriter.insert(entityClass, chunk.size());
+      timer.sqlBuilt();
+      count += queryRunner.update(sql, params);
+      timer.executed();
+      timer.batch(chunk.size());
+    }
+    timer.rows(count);
+
+    return count;
+  }
+
+  private int singleRowInserts(Class<?> entityClass, int rows, OperationTimer timer) throws SQLException {
+    String sql = sqlWriter.insert(entityClass);
+    timer.sqlBuilt();
+    int count = 0;
+
+    for (int from = 0; from < rows; from += batchSize) {
+      int batch = Math.min(batchSize, rows - from);
+      count += updateCount(queryRunner.batch(sql, new Object[batch][0]));
+      timer.executed();
+      timer.batch(batch);
+    }
+    timer.rows(count);
+
+    return count;
+  }
+
+  /**
+   * With a DirtyTracker, entities are grouped by the columns that changed, and each group is updated with its own statement. Unchanged entities are skipped.
+   */
+  private int updateBatches(Class<?> entityClass, List<Object> entities, OperationTimer timer) throws SQLException {
+    if (dirtyTracker == null) {
+      return updateBatches(entityClass, entities, null, timer);
+    }
+
+    Map<String, List<Object>> entitiesByChanges = new LinkedHashMap<String, List<Object>>();
+    Map<String, int[]> changes = new HashMap<String, int[]>();
+    for (Object entity : entities) {
+      int[] changedProperties = dirtyTracker.changedProperties(entity);
+      if (changedProperties != null && changedProperties.length == 0) {
+        continue;
+      }
+
+      String key = changedProperties != null ? Arrays.toString(changedProperties) : "";
+      List<Object> entitiesWithChanges = entitiesByChanges.get(key);
+      if (entitiesWithChanges == null) {
+        entitiesWithChanges = new ArrayList<Object>();
+        entitiesByChanges.put(key, entitiesWithChanges);
+        changes.put(key, changedProperties);
+      }
+      entitiesWithChanges.add(entity);
+    }
+
+    int count = 0;
+    for (Map.Entry<String, List<Object>> entry : entitiesByChanges.entrySet()) {
+      count += updateBatches(entityClass, entry.getValue(), changes.get(entry.getKey()), timer);
+    }
+
+    return count;
+  }
+
+  /**
+   * @param changedProperties indexes of the updatable properties to write, or null for all of them
+   */
+  private int updateBatches(Class<?> entityClass, List<Object> entities, int[] changedProperties, OperationTimer timer) throws SQLException {
+    EntityMetadata metadata = EntityMetadata.of(entityClass);
+    String sql = sqlWriter.updateById(entityClass, columnNames(metadata, changedProperties));
+    timer.sqlBuilt();
+    int count = 0;
+
+    for (int from = 0; from < entities.size(); from += batchSize) {
+      List<Object> batch = entities.subList(from, Math.min(from + batchSize, entities.size()));
+      Object[][] params = new Object[batch.size()][];
+      for (int i = 0; i < params.length; i++) {
+        params[i] = updateArgs(batch.get(i), metadata, changedProperties);
+      }
+
+      count += updateCount(queryRunner.batch(sql, params));
+      timer.executed();
+      timer.batch(params.length);
+    }
+
+    for (Object entity : entities) {
+      evict(entityClass, metadata.getIdProperty().getAccessor().get(entity));
+      track(entity);
+    }
+    timer.rows(count);
+
+    return count;
+  }
+
+  private int upsertBatches(Class<?> entityClass, List<Object> entities, OperationTimer timer) throws SQLException {
+    EntityMetadata metadata = EntityMetadata.of(entityClass);
+    String sql = sqlWriter.upsert(entityClass);
+    timer.sqlBuilt();
+    int count = 0;
+
+    for (int from = 0; from < entities.size(); from += batchSize) {
+      List<Object> batch = entities.subList(from, Math.min(from + batchSize, entities.size()));
+      Object[][] params = new Object[batch.size()][];
+      for (int i = 0; i < params.length; i++) {
+        params[i] = upsertArgs(batch.get(i), metadata);
+      }
+
+      count += updateCount(queryRunner.batch(sql, params));
+      timer.executed();
+      timer.batch(params.length);
+    }
+
+    for (Object entity : entities) {
+      evict(entityClass, metadata.getIdProperty().getAccessor().get(entity));
+      track(entity);
+    }
+    timer.rows(count);
+
+    return count;
+  }
+
+  /**
+   * @return The timer of entityClass in timers, started if there is none yet. Timers are only kept when metrics are recorded.
+   */
+  private OperationTimer timer(Map<Class<?>, OperationTimer> timers, Operation operation, Class<?> entityClass) {
+    if (metrics == QueryMetrics.NONE) {
+      return OperationTimer.NONE;
+    }
+
+    OperationTimer timer = timers.get(entityClass);
+    if (timer == null) {
+      timer = OperationTimer.start(metrics, operation, entityClass);
+      timers.put(entityClass, timer);
+    }
+
+    return timer;
+  }
+
+  private <T> T track(T entity) {
+    if (dirtyTracker != null) {
+      dirtyTracker.snapshot(entity);
+    }
+
+    return entity;
+  }
+
+  /**
+   * @return The names of the updatable columns at the given indexes. Empty, meaning all columns, if changedProperties is null.
+   */
+  private static String[] columnNames(EntityMetadata metadata, int[] changedProperties) {
+    if (changedProperties == null) {
+      return new String[0];
+    }
+
+    String[] columns = new String[changedProperties.length];
+    for (int i = 0; i < changedProperties.length; i++) {
+      columns[i] = metadata.getUpdatableColumnNames()[changedProperties[i]];
+    }
+
+    return columns;
+  }
+
+  private boolean isCached(Class<?> entityClass) {
+    return entityCache != null && (cachedClasses.contains(entityClass) || EntityMetadata.of(entityClass).isCacheable());
+  }
+
+  private void evict(Class<?> entityClass, Object primaryKey) {
+    if (primaryKey != null && isCached(entityClass)) {
+      Object cacheId = cacheId(primaryKey);
+      evictions.incrementAndGet(evictionStripe(entityClass, cacheId));
+      entityCache.evict(entityClass, cacheId);
+    }
+  }
+
+  private void evictAll(Class<?> entityClass) {
+    if (isCached(entityClass)) {
+      for (int i = 0; i < EVICTION_STRIPES; i++) {
+        evictions.incrementAndGet(i);
+      }
+      entityCache.evictAll(entityClass);
+    }
+  }
+
+  /**
+   * Caches values read by a query, unless the entity was evicted since evictionStamp was read, in which case the values may be out of date.
+   * An eviction between the check and the put is detected afterwards, and the values are evicted again.
+   */
+  private void cache(Class<?> entityClass, Object cacheId, Object[] values, long evictionStamp) {
+    int stripe = evictionStripe(entityClass, cacheId);
+    if (evictions.get(stripe) != evictionStamp) {
+      return;
+    }
+
+    entityCache.put(entityClass, cacheId, values);
+    if (evictions.get(stripe) != evictionStamp) {
+      entityCache.evict(entityClass, cacheId);
+    }
+  }
+
+  private static int evictionStripe(Class<?> entityClass, Object cacheId) {
+    int hash = 31 * entityClass.hashCode() + cacheId.hashCode();
+
+    return (hash ^ (hash >>> 16)) & (EVICTION_STRIPES - 1);
+  }
+
+  /**
+   * @return primaryKey, with integer types widened to Long, so that 1 and 1L refer to the same cache entry.
+   */
+  private static Object cacheId(Object primaryKey) {
+    if (primaryKey instanceof Integer || primaryKey instanceof Short || primaryKey instanceof Byte) {
+      return Long.valueOf(((Number) primaryKey).longValue());
+    }
+
+    return primaryKey;
+  }
+
+  /**
+   * The cache holds copies of the entities' state rather than the instances returned to callers, so that changes made to them are not seen by other callers.
+   * Dates and arrays are copied, and ToOne relations are stored as the ids of the related entities.
+   */
+  private static Object[] toCacheValues(EntityMetadata metadata, Object entity) {
+    PropertyDescriptorWrapper[] properties = metadata.getPersistentProperties();
+    Object[] values = new Object[properties.length];
+    for (int i = 0; i < properties.length; i++) {
+      Object value = properties[i].get(entity);
+      if (value != null && properties[i].isToOneRelation()) {
+        values[i] = value instanceof LazyReference ? ((LazyReference<?>) value).getId() : EntityMetadata.of(properties[i].getPropertyType()).getIdProperty().get(value);
+      } else {
+        values[i] = DirtyTracker.copy(value);
+      }
+    }
+
+    return values;
+  }
+
+  /**
+   * @return A new entity, whose ToOne relations are set to references, as {@link JpaBeanProcessor} does when the related table is not queried.
+   */
+  private Object fromCacheValues(EntityMetadata metadata, Object[] values) {
+    PropertyDescriptorWrapper[] properties = metadata.getPersistentProperties();
+    Object entity = metadata.newInstance();
+    for (int i = 0; i < properties.length; i++) {
+      if (values[i] != null && properties[i].isToOneRelation()) {
+        properties[i].set(entity, reference(properties[i], values[i]));
+      } else {
+        properties[i].set(entity, DirtyTracker.copy(values[i]));
+      }
+    }
+
+    return entity;
+  }
+
+  private Object reference(PropertyDescriptorWrapper property, Object id) {
+    if (property.getPropertyType() == LazyReference.class) {
+      return lazyReference(property.getRelationType(), id);
+    }
+
+    EntityMetadata relationMetadata = EntityMetadata.of(property.getPropertyType());
+    Object reference = relationMetadata.newInstance();
+    relationMetadata.getIdProperty().set(reference, id);
+
+    return reference;
+  }
+
+  private <T> LazyReference<T> lazyReference(Class<T> entityClass, Object id) {
+    return new LazyReference<T>(entityClass, id, beanProcessor != null ? beanProcessor.getEntityLoader() : null);
+  }
+
+  /**
+   * @return The primary keys, padded to the next power of two (but no more than inListSize) by repeating the last one.
+   */
+  private Object[] inListParams(List<Object> primaryKeys) {
+    Object[] params = new Object[Math.min(paddedSize(primaryKeys.size()), inListSize)];
+    for (int i = 0; i < params.length; i++) {
+      params[i] = toColumnValue(primaryKeys.get(Math.min(i, primaryKeys.size() - 1)));
+    }
+
+    return params;
+  }
+
+  private static int paddedSize(int size) {
+    int paddedSize = 1;
+    while (paddedSize < size) {
+      paddedSize <<= 1;
+    }
+
+    return paddedSize;
+  }
+
+  private static void addByClass(Map<Class<?>, List<Object>> entitiesByClass, Object entity) {
+    List<Object> entitiesOfClass = entitiesByClass.get(entity.getClass());
+    if (entitiesOfClass == null) {
+      entitiesOfClass = new ArrayList<Object>();
+      entitiesByClass.put(entity.getClass(), entitiesOfClass);
+    }
+    entitiesOfClass.add(entity);
+  }
+
+  private static int updateCount(int[] updateCounts) {
+    int count = 0;
+    for (int updateCount : updateCounts) {
+      if (updateCount > 0) {
+        count += updateCount;
+      } else if (updateCount == Statement.SUCCESS_NO_INFO) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  private Object[] insertArgs(Object entity, EntityMetadata metadata) {
+    PropertyDescriptorWrapper[] insertableProperties = metadata.getInsertableProperties();
+    ColumnConverter[] insertableConverters = propertyConverters(metadata).insertable;
+    Object[] args = new Object[insertableProperties.length];
+    for (int i = 0; i < insertableProperties.length; i++) {
+      args[i] = columnValue(insertableConverters[i], insertableProperties[i].getAccessor().get(entity));
+    }
+
+    return args;
+  }
+
+  /**
+   * @return The id, followed by the values of the insertable columns.
+   */
+  private Object[] upsertArgs(Object entity, EntityMetadata metadata) {
+    Object id = metadata.getIdProperty().getAccessor().get(entity);
+    if (id == null) {
+      throw new IllegalArgumentException("Cannot upsert " + entity.getClass().getName() + " without an id");
+    }
+
+    Object[] insertArgs = insertArgs(entity, metadata);
+    Object[] args = new Object[insertArgs.length + 1];
+    args[0] = columnValue(propertyConverters(metadata).id, id);
+    System.arraycopy(insertArgs, 0, args, 1, insertArgs.length);
+
+    return args;
+  }
+
+  /**
+   * @param changedProperties indexes of the updatable properties to write, or null for all of them
+   * @return The values of the given updatable columns, followed by the id.
+   */
+  private Object[] updateArgs(Object entity, EntityMetadata metadata, int[] changedProperties) {
+    if (changedProperties == null) {
+      return updateArgs(entity, metadata);
+    }
+
+    PropertyDescriptorWrapper[] updatableProperties = metadata.getUpdatableProperties();
+    PropertyConverters converters = propertyConverters(metadata);
+    Object[] args = new Object[changedProperties.length + 1];
+    for (int i = 0; i < changedProperties.length; i++) {
+      int property = changedProperties[i];
+      args[i] = columnValue(converters.updatable[property], updatableProperties[property].getAccessor().get(entity));
+    }
+    args[changedProperties.length] = columnValue(converters.id, metadata.getIdProperty().getAccessor().get(entity));
+
+    return args;
+  }
+
+  /**
+   * @return The values of the updatable columns, followed by the id.
+   */
+  private Object[] updateArgs(Object entity, EntityMetadata metadata) {
+    PropertyDescriptorWrapper[] updatableProperties = metadata.getUpdatableProperties();
+    PropertyConverters converters = propertyConverters(metadata);
+    Object[] args = new Object[updatableProperties.length + 1];
+    for (int i = 0; i < updatableProperties.length; i++) {
+      args[i] = columnValue(converters.updatable[i], updatableProperties[i].getAccessor().get(entity));
+    }
+    args[updatableProperties.length] = columnValue(converters.id, metadata.getIdProperty().getAccessor().get(entity));
+
+    return args;
+  }
+
+  private Object[] toColumnValues(Object[] values) {
+    Object[] columnValues = new Object[values.length];
+    for (int i = 0; i < values.length; i++) {
+      columnValues[i] = toColumnValue(values[i]);
+    }
+
+    return columnValues;
+  }
+
+  private Object toColumnValue(Object value) {
+    return converters.toColumnValue(value);
+  }
+
+  private static Object columnValue(ColumnConverter converter, Object value) {
+    return converter != null ? converter.toColumnValue(value) : value;
+  }
+
+  private PropertyConverters propertyConverters(EntityMetadata metadata) {
+    PropertyConverters entityConverters = propertyConverters.get(metadata.getEntityClass());
+    if (entityConverters == null) {
+      entityConverters = new PropertyConverters(converters, metadata);
+      PropertyConverters existing = propertyConverters.putIfAbsent(metadata.getEntityClass(), entityConverters);
+      if (existing != null) {
+        entityConverters = existing;
+      }
+    }
+
+    return entityConverters;
+  }
+
+  /**
+   * The conversions of an entity's insertable and updatable properties and of its id, chosen once per class. Null elements mean no conversion.
+   */
+  private static final class PropertyConverters {
+    final ColumnConverter[] insertable;
+    final ColumnConverter[] updatable;
+    final ColumnConverter id;
+
+    PropertyConverters(ConverterRegistry converters, EntityMetadata metadata) {
+      this.insertable = forProperties(converters, metadata.getInsertableProperties());
+      this.updatable = forProperties(converters, metadata.getUpdatableProperties());
+      this.id = metadata.getIdProperty() != null ? converters.forProperty(metadata.getIdProperty()) : null;
+    }
+
+    private static ColumnConverter[] forProperties(ConverterRegistry converters, PropertyDescriptorWrapper[] properties) {
+      ColumnConverter[] propertyConverters = new ColumnConverter[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+        propertyConverters[i] = converters.forProperty(properties[i]);
+      }
+
+      return propertyConverters;
+    }
   }
 }
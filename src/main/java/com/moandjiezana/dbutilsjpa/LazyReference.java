@@ -0,0 +1,72 @@
+package com.moandjiezana.dbutilsjpa;
+
+/**
+ * A ToOne relation that is only loaded when it is first accessed. Declare the property with this type to use it:
+ *
+ * <pre><code>@ManyToOne(fetch = FetchType.LAZY)
+ * private LazyReference&lt;Customer&gt; customer;</code></pre>
+ *
+ * {@link JpaBeanProcessor} sets it from the join column, without querying the related table. If the related entity's columns are part of the query, the reference is already loaded.
+ *
+ * Thread-safe. Concurrent first accesses may load the entity more than once.
+ */
+public class LazyReference<T> {
+
+  private final Class<T> entityClass;
+  private final Object id;
+  private final EntityLoader loader;
+  private volatile boolean loaded;
+  private volatile T entity;
+
+  /**
+   * @return A reference that has already been loaded.
+   */
+  public static <T> LazyReference<T> loaded(Class<T> entityClass, Object id, T entity) {
+    LazyReference<T> reference = new LazyReference<T>(entityClass, id, null);
+    reference.entity = entity;
+    reference.loaded = true;
+
+    return reference;
+  }
+
+  /**
+   * @param loader may be null, in which case {@link #get()} throws an IllegalStateException.
+   */
+  public LazyReference(Class<T> entityClass, Object id, EntityLoader loader) {
+    this.entityClass = entityClass;
+    this.id = id;
+    this.loader = loader;
+  }
+
+  public Class<T> getEntityClass() {
+    return entityClass;
+  }
+
+  /**
+   * @return The id of the related entity. Does not load it.
+   */
+  public Object getId() {
+    return id;
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * @return The related entity, loaded on first access. Null if it does not exist.
+   * @throws IllegalStateException if the reference is not loaded and was created without an {@link EntityLoader}.
+   */
+  public T get() {
+    if (!loaded) {
+      if (loader == null) {
+        throw new IllegalStateException("Cannot load " + entityClass.getName() + " " + id + ": no EntityLoader was set on the JpaBeanProcessor");
+      }
+
+      entity = loader.query(entityClass, id);
+      loaded = true;
+    }
+
+    return entity;
+  }
+}
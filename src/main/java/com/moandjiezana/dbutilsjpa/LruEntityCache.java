@@ -0,0 +1,227 @@
+package com.moandjiezana.dbutilsjpa;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link EntityCache} bounded by size and time to live.
+ *
+ * Entries are spread over stripes, each with its own lock and its own least-recently-used order, so that concurrent readers rarely contend.
+ * When a stripe is full, its least recently used entry is evicted. Entries older than the time to live are removed when they are read.
+ * Statistics are kept in striped counters, so that recording them does not make concurrent readers contend either.
+ *
+ * Thread-safe.
+ */
+public class LruEntityCache implements EntityCache {
+
+  private static final int DEFAULT_STRIPES = 16;
+  private static final int HITS = 0;
+  private static final int MISSES = 1;
+  private static final int EVICTIONS = 2;
+  private static final int EXPIRATIONS = 3;
+
+  private final Stripe[] stripes;
+  private final long ttlNanos;
+  private final StripedCounters counters = new StripedCounters(4);
+
+  /**
+   * Uses 16 stripes.
+   */
+  public LruEntityCache(int maxSize, long ttl, TimeUnit unit) {
+    this(maxSize, ttl, unit, DEFAULT_STRIPES);
+  }
+
+  /**
+   * @param maxSize maximum number of entries. Each stripe holds at most maxSize / stripes entries.
+   * @param ttl time after which an entry is no longer returned
+   * @param stripes number of independently locked segments. Rounded up to a power of two.
+   */
+  public LruEntityCache(int maxSize, long ttl, TimeUnit unit, int stripes) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive, was " + maxSize);
+    }
+    if (ttl < 1) {
+      throw new IllegalArgumentException("ttl must be positive, was " + ttl);
+    }
+    if (stripes < 1) {
+      throw new IllegalArgumentException("stripes must be positive, was " + stripes);
+    }
+
+    int stripeCount = 1;
+    while (stripeCount < stripes) {
+      stripeCount <<= 1;
+    }
+    stripeCount = Math.min(stripeCount, Integer.highestOneBit(maxSize));
+
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      this.stripes[i] = new Stripe(maxSize / stripeCount);
+    }
+    this.ttlNanos = unit.toNanos(ttl);
+  }
+
+  @Override
+  public Object get(Class<?> entityClass, Object id) {
+    Key key = new Key(entityClass, id);
+    Stripe stripe = stripe(key);
+    CacheEntry entry;
+
+    synchronized (stripe) {
+      entry = stripe.get(key);
+      if (entry != null && System.nanoTime() - entry.created > ttlNanos) {
+        stripe.remove(key);
+        counters.increment(EXPIRATIONS);
+        entry = null;
+      }
+    }
+
+    if (entry == null) {
+      counters.increment(MISSES);
+      return null;
+    }
+
+    counters.increment(HITS);
+    return entry.value;
+  }
+
+  @Override
+  public void put(Class<?> entityClass, Object id, Object value) {
+    Key key = new Key(entityClass, id);
+    Stripe stripe = stripe(key);
+    CacheEntry entry = new CacheEntry(value, System.nanoTime());
+
+    synchronized (stripe) {
+      stripe.put(key, entry);
+    }
+  }
+
+  @Override
+  public void evict(Class<?> entityClass, Object id) {
+    Key key = new Key(entityClass, id);
+    Stripe stripe = stripe(key);
+
+    synchronized (stripe) {
+      stripe.remove(key);
+    }
+  }
+
+  @Override
+  public void evictAll(Class<?> entityClass) {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        for (Iterator<Key> iterator = stripe.keySet().iterator(); iterator.hasNext();) {
+          if (iterator.next().entityClass == entityClass) {
+            iterator.remove();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return The number of calls to {@link #get(Class, Object)} that returned a value.
+   */
+  public long getHitCount() {
+    return counters.sum(HITS);
+  }
+
+  /**
+   * @return The number of calls to {@link #get(Class, Object)} that returned null, including expired entries.
+   */
+  public long getMissCount() {
+    return counters.sum(MISSES);
+  }
+
+  /**
+   * @return The number of entries removed to make room for new ones.
+   */
+  public long getEvictionCount() {
+    return counters.sum(EVICTIONS);
+  }
+
+  /**
+   * @return The number of entries removed because they were older than the time to live.
+   */
+  public long getExpirationCount() {
+    return counters.sum(EXPIRATIONS);
+  }
+
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+
+    return size;
+  }
+
+  private Stripe stripe(Key key) {
+    int hash = key.hashCode();
+    hash ^= (hash >>> 16);
+
+    return stripes[hash & (stripes.length - 1)];
+  }
+
+  private final class Stripe extends LinkedHashMap<Key, CacheEntry> {
+    private static final long serialVersionUID = 1L;
+
+    private final int maxSize;
+
+    Stripe(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+      if (size() > maxSize) {
+        counters.increment(EVICTIONS);
+        return true;
+      }
+
+      return false;
+    }
+  }
+
+  private static final class CacheEntry {
+    final Object value;
+    final long created;
+
+    CacheEntry(Object value, long created) {
+      this.value = value;
+      this.created = created;
+    }
+  }
+
+  private static final class Key {
+    final Class<?> entityClass;
+    final Object id;
+    private final int hashCode;
+
+    Key(Class<?> entityClass, Object id) {
+      this.entityClass = entityClass;
+      this.id = id;
+      this.hashCode = 31 * entityClass.hashCode() + id.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) obj;
+
+      return entityClass == other.entityClass && id.equals(other.id);
+    }
+  }
+}
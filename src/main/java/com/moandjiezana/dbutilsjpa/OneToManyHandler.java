@@ -0,0 +1,126 @@
+package com.moandjiezana.dbutilsjpa;
+
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Populates a OneToMany property from a query joining the parent and child tables, so that an entity and its children are loaded in a single query.
+ *
+ * Parent rows are identified by their id: the first row for a given parent is mapped to a new instance, the following ones only add a child to its collection.
+ * Rows in which the child's id is null, as returned by a LEFT JOIN for parents without children, leave the collection empty.
+ *
+ * <pre><code>List&lt;Order&gt; orders = queryRunner.query("SELECT Order.*, OrderLine.* FROM Order LEFT JOIN OrderLine ON OrderLine.order_id = Order.id", new OneToManyHandler&lt;Order&gt;(Order.class, "lines"));</code></pre>
+ *
+ * Columns are attributed to the parent or the child by their table name, as reported by the JDBC driver. Parent and child must therefore be in different tables.
+ *
+ * If the processor has a {@link DirtyTracker}, parents and children are snapshotted as they are read.
+ *
+ * Thread-safe.
+ */
+public class OneToManyHandler<T> implements ResultSetHandler<List<T>> {
+
+  private final Class<T> type;
+  private final PropertyDescriptorWrapper collectionProperty;
+  private final Class<?> childType;
+  private final JpaBeanProcessor processor;
+
+  /**
+   * Uses a {@link JpaBeanProcessor} with _id as foreignKeySuffix
+   */
+  public OneToManyHandler(Class<T> type, String propertyName) {
+    this(type, propertyName, new JpaBeanProcessor());
+  }
+
+  /**
+   * @param propertyName name of a property annotated with @OneToMany, whose type is a List, Set or Collection.
+   * @throws IllegalArgumentException if type does not have such a property, or if the type of its elements cannot be determined.
+   */
+  public OneToManyHandler(Class<T> type, String propertyName, JpaBeanProcessor processor) {
+    processor.checkIsEntity(type);
+    this.type = type;
+    this.collectionProperty = findCollectionProperty(type, propertyName);
+    this.childType = collectionProperty.getRelationType();
+    this.processor = processor;
+
+    if (childType == null) {
+      throw new IllegalArgumentException("Could not determine the element type of " + type.getName() + "." + propertyName + ". Use a parameterized collection or set @OneToMany(targetEntity).");
+    }
+  }
+
+  /**
+   * @return The parents, in the order in which they first appear in rs.
+   */
+  @Override
+  public List<T> handle(ResultSet rs) throws SQLException {
+    if (!rs.next()) {
+      return Collections.emptyList();
+    }
+
+    ResultSetMetaData rsmd = rs.getMetaData();
+    int parentIdColumn = JpaBeanProcessor.idColumn(rsmd, type);
+    if (parentIdColumn == JpaBeanProcessor.PROPERTY_NOT_FOUND) {
+      throw new SQLException("ResultSet does not contain the id of " + EntityMetadata.of(type).getTableName());
+    }
+    int childIdColumn = JpaBeanProcessor.idColumn(rsmd, childType);
+
+    RowMapper<T> parentMapper = processor.createTableRowMapper(rsmd, type);
+    RowMapper<?> childMapper = processor.createTableRowMapper(rsmd, childType);
+    IdentityMap identities = processor.newIdentityMap();
+    List<T> parents = new ArrayList<T>();
+    Map<Object, Collection<Object>> children = new HashMap<Object, Collection<Object>>();
+
+    do {
+      Object parentId = rs.getObject(parentIdColumn);
+      Collection<Object> collection = children.get(parentId);
+
+      if (collection == null) {
+        T parent = processor.track(parentMapper.map(rs, identities));
+        collection = newCollection();
+        collectionProperty.set(parent, collection);
+        parents.add(parent);
+        children.put(parentId, collection);
+      }
+
+      if (childIdColumn != JpaBeanProcessor.PROPERTY_NOT_FOUND && rs.getObject(childIdColumn) != null) {
+        collection.add(processor.track(childMapper.map(rs, identities)));
+      }
+    } while (rs.next());
+
+    return parents;
+  }
+
+  private Collection<Object> newCollection() {
+    if (Set.class.isAssignableFrom(collectionProperty.getPropertyType())) {
+      return new LinkedHashSet<Object>();
+    }
+
+    return new ArrayList<Object>();
+  }
+
+  private static PropertyDescriptorWrapper findCollectionProperty(Class<?> type, String propertyName) {
+    for (PropertyDescriptorWrapper property : EntityMetadata.of(type).getRelations()) {
+      if (property.getName().equals(propertyName) && property.isRelation() && !property.isToOneRelation()) {
+        Class<?> propertyType = property.getPropertyType();
+        if (propertyType.isAssignableFrom(ArrayList.class) || propertyType.isAssignableFrom(LinkedHashSet.class)) {
+          return property;
+        }
+      }
+    }
+
+    throw new IllegalArgumentException(type.getName() + " does not have a List, Set or Collection property named " + propertyName + " annotated with @OneToMany");
+  }
+}
@@ -0,0 +1,121 @@
+package com.moandjiezana.dbutilsjpa;
+
+import com.moandjiezana.dbutilsjpa.QueryMetrics.Operation;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Splits the time taken by an operation of a {@link JpaQueryRunner} between SQL generation, execution and mapping, and reports it to a {@link QueryMetrics}.
+ *
+ * Time is measured in laps: {@link #sqlBuilt()} and {@link #executed()} each attribute the time elapsed since the previous lap. The time spent in handlers
+ * returned by {@link #mapping(ResultSetHandler)} during a lap is attributed to mapping instead of execution.
+ *
+ * {@link #NONE} does nothing and never reads the clock. Not thread-safe.
+ */
+class OperationTimer {
+
+  static final OperationTimer NONE = new OperationTimer(null, null, null);
+
+  /**
+   * @return {@link #NONE} if metrics is {@link QueryMetrics#NONE}
+   */
+  static OperationTimer start(QueryMetrics metrics, Operation operation, Class<?> entityClass) {
+    return metrics != QueryMetrics.NONE ? new OperationTimer(metrics, operation, entityClass) : NONE;
+  }
+
+  private final QueryMetrics metrics;
+  private final Operation operation;
+  private final Class<?> entityClass;
+  private final long start;
+  private long lap;
+  private long sqlNanos;
+  private long executeNanos;
+  private long mappingNanos;
+  private long lapMappingNanos;
+  private int rows;
+
+  private OperationTimer(QueryMetrics metrics, Operation operation, Class<?> entityClass) {
+    this.metrics = metrics;
+    this.operation = operation;
+    this.entityClass = entityClass;
+    this.start = metrics != null ? System.nanoTime() : 0;
+    this.lap = start;
+  }
+
+  void sqlBuilt() {
+    if (metrics == null) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    sqlNanos += now - lap;
+    lap = now;
+  }
+
+  void executed() {
+    if (metrics == null) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    executeNanos += Math.max(0, now - lap - lapMappingNanos);
+    lapMappingNanos = 0;
+    lap = now;
+  }
+
+  /**
+   * @return handler, timed if metrics are recorded
+   */
+  <T> ResultSetHandler<T> mapping(final ResultSetHandler<T> handler) {
+    if (metrics == null) {
+      return handler;
+    }
+
+    return new ResultSetHandler<T>() {
+      @Override
+      public T handle(ResultSet rs) throws SQLException {
+        long handleStart = System.nanoTime();
+        try {
+          return handler.handle(rs);
+        } finally {
+          long elapsed = System.nanoTime() - handleStart;
+          mappingNanos += elapsed;
+          lapMappingNanos += elapsed;
+        }
+      }
+    };
+  }
+
+  void batch(int statements) {
+    if (metrics != null) {
+      metrics.batchExecuted(operation, entityClass, statements);
+    }
+  }
+
+  void cacheAccessed(boolean hit) {
+    if (metrics != null) {
+      metrics.cacheAccessed(entityClass, hit);
+    }
+  }
+
+  void rows(int count) {
+    if (metrics != null) {
+      rows += count;
+    }
+  }
+
+  void completed() {
+    if (metrics != null) {
+      metrics.operationCompleted(operation, entityClass, sqlNanos, executeNanos, mappingNanos, System.nanoTime() - start, rows);
+    }
+  }
+
+  void failed() {
+    if (metrics != null) {
+      metrics.operationFailed(operation, entityClass, System.nanoTime() - start);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.moandjiezana.dbutilsjpa;
+
+/**
+ * Receives measurements of the operations run by a {@link JpaQueryRunner}. Set with {@link JpaQueryRunner.Builder#metrics(QueryMetrics)}.
+ *
+ * Methods are called on the thread running the operation, after it has completed, so implementations must be thread-safe and fast.
+ * When no QueryMetrics is set, the JpaQueryRunner does not read the clock at all.
+ *
+ * @see QueryStatistics
+ */
+public interface QueryMetrics {
+
+  /**
+   * Records nothing.
+   */
+  QueryMetrics NONE = new QueryMetrics() {
+    @Override
+    public void operationCompleted(Operation operation, Class<?> entityClass, long sqlNanos, long executeNanos, long mappingNanos, long totalNanos, int rows) {}
+
+    @Override
+    public void operationFailed(Operation operation, Class<?> entityClass, long totalNanos) {}
+
+    @Override
+    public void batchExecuted(Operation operation, Class<?> entityClass, int statements) {}
+
+    @Override
+    public void cacheAccessed(Class<?> entityClass, boolean hit) {}
+  };
+
+  /**
+   * The JpaQueryRunner methods that are measured. Entities are streamed lazily, so {@link JpaQueryRunner#stream(Class, String, Object...)} is not measured.
+   */
+  enum Operation {
+    QUERY, QUERY_ALL, SAVE, SAVE_ALL, INSERT_ALL, UPSERT, UPSERT_ALL, DELETE, DELETE_ALL, DELETE_WHERE, UPDATE_WHERE
+  }
+
+  /**
+   * Operations that handle several entity classes, such as saveAll, are reported once per class.
+   *
+   * @param sqlNanos Time spent getting the SQL from the {@link SqlWriter}.
+   * @param executeNanos Time spent binding parameters and executing statements, excluding mapping.
+   * @param mappingNanos Time spent by the ResultSetHandler mapping rows to entities, including the time the driver takes to fetch them.
+   * @param totalNanos Duration of the whole operation, including work such as converting values and tracking entities.
+   * @param rows The number of entities returned by a query, or the number of rows affected by other operations.
+   */
+  void operationCompleted(Operation operation, Class<?> entityClass, long sqlNanos, long executeNanos, long mappingNanos, long totalNanos, int rows);
+
+  /**
+   * Called instead of {@link #operationCompleted} when the operation throws an exception because of an SQLException.
+   */
+  void operationFailed(Operation operation, Class<?> entityClass, long totalNanos);
+
+  /**
+   * Called for each JDBC batch or multi-row statement sent by saveAll, insertAll and upsertAll.
+   *
+   * @param statements The number of statements in the batch, or of rows in a multi-row INSERT.
+   */
+  void batchExecuted(Operation operation, Class<?> entityClass, int statements);
+
+  /**
+   * Called by {@link JpaQueryRunner#query(Class, Object)} for entity classes that are cached.
+   *
+   * @param hit true if the entity was found in the {@link EntityCache}
+   */
+  void cacheAccessed(Class<?> entityClass, boolean hit);
+
+}
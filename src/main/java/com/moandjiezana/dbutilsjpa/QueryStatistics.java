@@ -0,0 +1,243 @@
+package com.moandjiezana.dbutilsjpa;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link QueryMetrics} that aggregates measurements in memory, by entity class and operation.
+ *
+ * <pre><code>QueryStatistics statistics = new QueryStatistics();
+ * JpaQueryRunner jpaQueryRunner = new JpaQueryRunner.Builder().metrics(statistics).build(queryRunner);
+ * // ...
+ * QueryStatistics.OperationStatistics queries = statistics.get(MyEntity.class, Operation.QUERY);
+ * long p99 = queries.getLatencyAtPercentile(99, TimeUnit.MICROSECONDS);</code></pre>
+ *
+ * Counters are striped and latencies are recorded in fixed-size histograms, so recording neither locks nor allocates once a class and operation have been seen.
+ * Values are read without stopping writers, so values read while operations complete may be slightly out of step with each other.
+ *
+ * Thread-safe.
+ */
+public class QueryStatistics implements QueryMetrics {
+
+  private static final int OPERATIONS = Operation.values().length;
+  private static final int CACHE_HITS = 0;
+  private static final int CACHE_MISSES = 1;
+
+  private final ConcurrentMap<Class<?>, EntityStatistics> entities = new ConcurrentHashMap<Class<?>, EntityStatistics>();
+
+  /**
+   * Statistics of an operation on an entity class.
+   */
+  public static final class OperationStatistics {
+
+    private static final int COUNT = 0;
+    private static final int FAILURES = 1;
+    private static final int ROWS = 2;
+    private static final int SQL_NANOS = 3;
+    private static final int EXECUTE_NANOS = 4;
+    private static final int MAPPING_NANOS = 5;
+    private static final int BATCHES = 6;
+    private static final int BATCHED_STATEMENTS = 7;
+
+    private final StripedCounters counters = new StripedCounters(8);
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    private OperationStatistics() {}
+
+    /**
+     * @return The number of operations that completed
+     */
+    public long getCount() {
+      return counters.sum(COUNT);
+    }
+
+    /**
+     * @return The number of operations that failed. They are not included in the other values.
+     */
+    public long getFailures() {
+      return counters.sum(FAILURES);
+    }
+
+    /**
+     * @return The number of entities returned by queries, or of rows affected by other operations
+     */
+    public long getRows() {
+      return counters.sum(ROWS);
+    }
+
+    /**
+     * @return Total time spent generating SQL
+     */
+    public long getSqlTime(TimeUnit unit) {
+      return unit.convert(counters.sum(SQL_NANOS), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Total time spent executing statements
+     */
+    public long getExecuteTime(TimeUnit unit) {
+      return unit.convert(counters.sum(EXECUTE_NANOS), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Total time spent mapping rows to entities
+     */
+    public long getMappingTime(TimeUnit unit) {
+      return unit.convert(counters.sum(MAPPING_NANOS), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The duration of the operation at the given percentile, within about 6%. 0 if no operation completed.
+     * @param percentile between 0 and 100
+     */
+    public long getLatencyAtPercentile(double percentile, TimeUnit unit) {
+      return unit.convert(latencies.getValueAtPercentile(percentile), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxLatency(TimeUnit unit) {
+      return unit.convert(latencies.getMax(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The number of JDBC batches and multi-row statements sent
+     */
+    public long getBatches() {
+      return counters.sum(BATCHES);
+    }
+
+    /**
+     * @return The number of statements or rows sent in batches. Divide by {@link #getBatches()} to get the average batch size.
+     */
+    public long getBatchedStatements() {
+      return counters.sum(BATCHED_STATEMENTS);
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + getCount() + ", failures=" + getFailures() + ", rows=" + getRows()
+          + ", sql=" + getSqlTime(TimeUnit.MICROSECONDS) + "us, execute=" + getExecuteTime(TimeUnit.MICROSECONDS) + "us, mapping=" + getMappingTime(TimeUnit.MICROSECONDS) + "us"
+          + ", p50=" + getLatencyAtPercentile(50, TimeUnit.MICROSECONDS) + "us, p99=" + getLatencyAtPercentile(99, TimeUnit.MICROSECONDS) + "us, max=" + getMaxLatency(TimeUnit.MICROSECONDS) + "us"
+          + ", batches=" + getBatches() + ", batchedStatements=" + getBatchedStatements();
+    }
+
+    private void completed(long sqlNanos, long executeNanos, long mappingNanos, long totalNanos, int rows) {
+      counters.increment(COUNT);
+      counters.add(ROWS, rows);
+      counters.add(SQL_NANOS, sqlNanos);
+      counters.add(EXECUTE_NANOS, executeNanos);
+      counters.add(MAPPING_NANOS, mappingNanos);
+      latencies.record(totalNanos);
+    }
+  }
+
+  @Override
+  public void operationCompleted(Operation operation, Class<?> entityClass, long sqlNanos, long executeNanos, long mappingNanos, long totalNanos, int rows) {
+    operationStatistics(entityClass, operation).completed(sqlNanos, executeNanos, mappingNanos, totalNanos, rows);
+  }
+
+  @Override
+  public void operationFailed(Operation operation, Class<?> entityClass, long totalNanos) {
+    operationStatistics(entityClass, operation).counters.increment(OperationStatistics.FAILURES);
+  }
+
+  @Override
+  public void batchExecuted(Operation operation, Class<?> entityClass, int statements) {
+    StripedCounters counters = operationStatistics(entityClass, operation).counters;
+    counters.increment(OperationStatistics.BATCHES);
+    counters.add(OperationStatistics.BATCHED_STATEMENTS, statements);
+  }
+
+  @Override
+  public void cacheAccessed(Class<?> entityClass, boolean hit) {
+    entityStatistics(entityClass).cache.increment(hit ? CACHE_HITS : CACHE_MISSES);
+  }
+
+  /**
+   * @return The statistics of operation on entityClass, or null if it has not been run.
+   */
+  public OperationStatistics get(Class<?> entityClass, Operation operation) {
+    EntityStatistics statistics = entities.get(entityClass);
+
+    return statistics != null ? statistics.operations.get(operation.ordinal()) : null;
+  }
+
+  /**
+   * @return The entity classes for which something has been recorded
+   */
+  public Set<Class<?>> getEntityClasses() {
+    return Collections.unmodifiableSet(entities.keySet());
+  }
+
+  public long getCacheHits(Class<?> entityClass) {
+    EntityStatistics statistics = entities.get(entityClass);
+
+    return statistics != null ? statistics.cache.sum(CACHE_HITS) : 0;
+  }
+
+  public long getCacheMisses(Class<?> entityClass) {
+    EntityStatistics statistics = entities.get(entityClass);
+
+    return statistics != null ? statistics.cache.sum(CACHE_MISSES) : 0;
+  }
+
+  /**
+   * @return The proportion of cache accesses that were hits, between 0 and 1. 0 if the cache was not accessed.
+   */
+  public double getCacheHitRate(Class<?> entityClass) {
+    long hits = getCacheHits(entityClass);
+    long accesses = hits + getCacheMisses(entityClass);
+
+    return accesses > 0 ? (double) hits / accesses : 0;
+  }
+
+  /**
+   * @return One line per entity class and operation
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (Class<?> entityClass : entities.keySet()) {
+      for (Operation operation : Operation.values()) {
+        OperationStatistics statistics = get(entityClass, operation);
+        if (statistics != null) {
+          sb.append(entityClass.getName()).append(' ').append(operation).append(": ").append(statistics).append('\n');
+        }
+      }
+    }
+
+    return sb.toString();
+  }
+
+  private EntityStatistics entityStatistics(Class<?> entityClass) {
+    EntityStatistics statistics = entities.get(entityClass);
+    if (statistics == null) {
+      statistics = new EntityStatistics();
+      EntityStatistics existing = entities.putIfAbsent(entityClass, statistics);
+      if (existing != null) {
+        statistics = existing;
+      }
+    }
+
+    return statistics;
+  }
+
+  private OperationStatistics operationStatistics(Class<?> entityClass, Operation operation) {
+    AtomicReferenceArray<OperationStatistics> operations = entityStatistics(entityClass).operations;
+    OperationStatistics statistics = operations.get(operation.ordinal());
+    if (statistics == null) {
+      operations.compareAndSet(operation.ordinal(), null, new OperationStatistics());
+      statistics = operations.get(operation.ordinal());
+    }
+
+    return statistics;
+  }
+
+  private static final class EntityStatistics {
+    final AtomicReferenceArray<OperationStatistics> operations = new AtomicReferenceArray<OperationStatistics>(OPERATIONS);
+    final StripedCounters cache = new StripedCounters(2);
+  }
+}
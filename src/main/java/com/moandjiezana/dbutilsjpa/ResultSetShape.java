@@ -0,0 +1,52 @@
+package com.moandjiezana.dbutilsjpa;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Identifies the columns of a ResultSet mapped to an entity class, so that work depending only on them can be cached.
+ * Table names are included, as they determine which columns belong to related entities.
+ *
+ * Immutable and thread-safe.
+ */
+final class ResultSetShape {
+
+  static ResultSetShape of(Class<?> type, ResultSetMetaData rsmd) throws SQLException {
+    int cols = rsmd.getColumnCount();
+    String[] columns = new String[cols * 2];
+
+    for (int col = 1; col <= cols; col++) {
+      columns[col * 2 - 2] = JpaBeanProcessor.columnName(rsmd, col);
+      columns[col * 2 - 1] = rsmd.getTableName(col);
+    }
+
+    return new ResultSetShape(type, columns);
+  }
+
+  private final Class<?> type;
+  private final String[] columns;
+  private final int hashCode;
+
+  private ResultSetShape(Class<?> type, String[] columns) {
+    this.type = type;
+    this.columns = columns;
+    this.hashCode = 31 * type.hashCode() + Arrays.hashCode(columns);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof ResultSetShape)) {
+      return false;
+    }
+
+    ResultSetShape other = (ResultSetShape) obj;
+
+    return type == other.type && Arrays.equals(columns, other.columns);
+  }
+}
@@ -0,0 +1,93 @@
+package com.moandjiezana.dbutilsjpa;
+
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of a given shape to a given entity class. All column-to-property matching and getter selection is done when the mapper is created.
+ *
+ * Immutable and thread-safe.
+ */
+final class RowMapper<T> {
+
+  private final JpaBeanProcessor processor;
+  private final Class<T> type;
+  private final EntityMetadata metadata;
+  private final ColumnReader[] readers;
+  private final int idColumn;
+  private final Class<?> idType;
+
+  /**
+   * @param idColumn index of the column containing the id, or {@link JpaBeanProcessor#PROPERTY_NOT_FOUND}. Used to look up instances in an {@link IdentityMap}.
+   */
+  RowMapper(JpaBeanProcessor processor, Class<T> type, ColumnReader[] readers, int idColumn, Class<?> idType) {
+    this.processor = processor;
+    this.type = type;
+    this.metadata = EntityMetadata.of(type);
+    this.readers = readers;
+    this.idColumn = idColumn;
+    this.idType = idType;
+  }
+
+  T map(ResultSet rs) throws SQLException {
+    return map(rs, null);
+  }
+
+  /**
+   * @param identities may be null. If it already contains the entity in this row, that instance is returned without reading the row.
+   */
+  T map(ResultSet rs, IdentityMap identities) throws SQLException {
+    Object id = null;
+
+    if (identities != null && idColumn != JpaBeanProcessor.PROPERTY_NOT_FOUND) {
+      id = processor.readColumn(rs, idColumn, idType);
+      if (rs.wasNull()) {
+        id = null;
+      } else {
+        T existing = identities.get(type, id);
+        if (existing != null) {
+          return existing;
+        }
+      }
+    }
+
+    T bean = type.cast(metadata.newInstance());
+
+    for (ColumnReader reader : readers) {
+      reader.read(rs, bean, identities);
+    }
+
+    if (id != null) {
+      identities.put(type, id, bean);
+    }
+
+    return bean;
+  }
+
+  /**
+   * @return The values of the current row, read with the same getters as {@link #map(ResultSet)}. Passed to {@link #map(Object[])}, possibly on another thread.
+   */
+  Object[] extract(ResultSet rs) throws SQLException {
+    Object[] values = new Object[readers.length];
+    for (int i = 0; i < readers.length; i++) {
+      values[i] = readers[i].extract(rs);
+    }
+
+    return values;
+  }
+
+  /**
+   * @param values returned by {@link #extract(ResultSet)}
+   */
+  T map(Object[] values) throws SQLException {
+    T bean = type.cast(metadata.newInstance());
+
+    for (int i = 0; i < readers.length; i++) {
+      readers[i].apply(bean, values[i]);
+    }
+
+    return bean;
+  }
+}
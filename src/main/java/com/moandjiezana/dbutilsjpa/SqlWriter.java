@@ -2,100 +2,303 @@ package com.moandjiezana.dbutilsjpa;
 
 import co.mewf.sqlwriter.Queries;
 
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.AccessibleObject;
-import java.lang.reflect.Field;
-import java.lang.reflect.Member;
-import java.lang.reflect.Method;
+import com.moandjiezana.dbutilsjpa.internal.EntityMetadata;
+
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-
-import javax.persistence.Column;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Generates SQL for entities. Statements only depend on the entity class, so each one is generated once and then served from a cache.
+ *
+ * Thread-safe.
+ */
 public class SqlWriter {
 
+  private final ConcurrentMap<Class<?>, String> selectByIdCache = new ConcurrentHashMap<Class<?>, String>();
+  private final ConcurrentMap<Class<?>, String> selectCache = new ConcurrentHashMap<Class<?>, String>();
+  private final ConcurrentMap<Class<?>, String> insertCache = new ConcurrentHashMap<Class<?>, String>();
+  private final ConcurrentMap<Class<?>, String> deleteByIdCache = new ConcurrentHashMap<Class<?>, String>();
+  private final ConcurrentMap<Class<?>, String> updateByIdCache = new ConcurrentHashMap<Class<?>, String>();
+  private final ConcurrentMap<StatementKey, String> updateColumnsByIdCache = new ConcurrentHashMap<StatementKey, String>();
+  private final ConcurrentMap<StatementKey, String> multiRowInsertCache = new ConcurrentHashMap<StatementKey, String>();
+  private final ConcurrentMap<StatementKey, String> selectByIdsCache = new ConcurrentHashMap<StatementKey, String>();
+  private final ConcurrentMap<StatementKey, String> deleteByIdsCache = new ConcurrentHashMap<StatementKey, String>();
+  private final ConcurrentMap<Class<?>, String> upsertCache = new ConcurrentHashMap<Class<?>, String>();
+  private final Dialect dialect;
+
+  /**
+   * Only generates standard SQL. {@link #upsert(Class)} is not supported.
+   */
+  public SqlWriter() {
+    this(null);
+  }
+
+  /**
+   * @param dialect used for statements without a standard syntax. May be null.
+   */
+  public SqlWriter(Dialect dialect) {
+    this.dialect = dialect;
+  }
+
   public String selectById(Class<?> entityClass) {
-    AccessibleObject idAccessor = Entities.getIdAccessor(entityClass);
+    String sql = selectByIdCache.get(entityClass);
+    if (sql == null) {
+      sql = cache(selectByIdCache, entityClass, Queries.select().from(entityClass).where().eq(EntityMetadata.of(entityClass).getIdColumnName()).toString());
+    }
 
-    return Queries.select().from(entityClass).where().eq(Entities.getName(idAccessor)).toString();
+    return sql;
+  }
+
+  /**
+   * @param ids Number of ids in the IN list. Must be positive.
+   * @return SELECT with a WHERE id IN (?, ...) clause.
+   */
+  public String selectByIds(Class<?> entityClass, int ids) {
+    if (ids < 1) {
+      throw new IllegalArgumentException("ids must be positive, was " + ids);
+    }
+
+    StatementKey key = new StatementKey(entityClass, new Object[] { Integer.valueOf(ids) });
+    String sql = selectByIdsCache.get(key);
+    if (sql == null) {
+      EntityMetadata metadata = EntityMetadata.of(entityClass);
+      sql = cache(selectByIdsCache, key, select(entityClass) + " WHERE " + metadata.getTableName() + "." + metadata.getIdColumnName() + " IN " + parameters(ids));
+    }
+
+    return sql;
   }
 
   public String select(Class<?> entityClass) {
-    return Queries.select().from(entityClass).toString();
+    String sql = selectCache.get(entityClass);
+    if (sql == null) {
+      sql = cache(selectCache, entityClass, Queries.select().from(entityClass).toString());
+    }
+
+    return sql;
   }
 
   public String insert(Class<?> entityClass) {
-    String[] columnNames = getColumnNames(entityClass, Entities.getIdAccessor(entityClass), NOT_INSERTABLE);
+    String sql = insertCache.get(entityClass);
+    if (sql == null) {
+      sql = cache(insertCache, entityClass, Queries.insert(entityClass).columns(EntityMetadata.of(entityClass).getInsertableColumnNames()).toString());
+    }
 
-    return Queries.insert(entityClass).columns(columnNames).toString();
+    return sql;
+  }
+
+  /**
+   * @param rows Number of rows inserted by the statement. Must be positive.
+   * @return A single INSERT statement with one group of parameters per row, in the same column order as {@link #insert(Class)}.
+   */
+  public String insert(Class<?> entityClass, int rows) {
+    if (rows < 1) {
+      throw new IllegalArgumentException("rows must be positive, was " + rows);
+    }
+
+    if (rows == 1) {
+      return insert(entityClass);
+    }
+
+    StatementKey key = new StatementKey(entityClass, new Object[] { Integer.valueOf(rows) });
+    String sql = multiRowInsertCache.get(key);
+    if (sql == null) {
+      String values = ", " + parameters(EntityMetadata.of(entityClass).getInsertableColumnNames().length);
+      StringBuilder multiRowInsert = new StringBuilder(insert(entityClass));
+      for (int i = 1; i < rows; i++) {
+        multiRowInsert.append(values);
+      }
+
+      sql = cache(multiRowInsertCache, key, multiRowInsert.toString());
+    }
+
+    return sql;
   }
 
   public String deleteById(Class<?> entityClass) {
-    return Queries.delete(entityClass).where().eq(Entities.getName(Entities.getIdAccessor(entityClass))).toString();
+    String sql = deleteByIdCache.get(entityClass);
+    if (sql == null) {
+      sql = cache(deleteByIdCache, entityClass, Queries.delete(entityClass).where().eq(EntityMetadata.of(entityClass).getIdColumnName()).toString());
+    }
+
+    return sql;
+  }
+
+  /**
+   * @param ids Number of ids in the IN list. Must be positive.
+   * @return DELETE with a WHERE id IN (?, ...) clause.
+   */
+  public String deleteByIds(Class<?> entityClass, int ids) {
+    if (ids < 1) {
+      throw new IllegalArgumentException("ids must be positive, was " + ids);
+    }
+
+    StatementKey key = new StatementKey(entityClass, new Object[] { Integer.valueOf(ids) });
+    String sql = deleteByIdsCache.get(key);
+    if (sql == null) {
+      EntityMetadata metadata = EntityMetadata.of(entityClass);
+      sql = cache(deleteByIdsCache, key, Queries.delete(entityClass).toString() + " WHERE " + metadata.getTableName() + "." + metadata.getIdColumnName() + " IN " + parameters(ids));
+    }
+
+    return sql;
+  }
+
+  /**
+   * @param where SQL condition, without the WHERE keyword. Not cached, as it is supplied by the caller.
+   */
+  public String deleteWhere(Class<?> entityClass, String where) {
+    return Queries.delete(entityClass).toString() + " WHERE " + where;
+  }
+
+  /**
+   * @param where SQL condition, without the WHERE keyword. Not cached, as it is supplied by the caller.
+   * @param columns The columns to set.
+   */
+  public String updateWhere(Class<?> entityClass, String where, String... columns) {
+    return Queries.update(entityClass).set(columns).toString() + " WHERE " + where;
   }
 
   /**
    * @param columns Optional. If omitted, all columns are updated, except the ones marked with @Column(updatable=false)
    */
   public String updateById(Class<?> entityClass, String... columns) {
-    AccessibleObject idAccessor = Entities.getIdAccessor(entityClass);
-    String[] columnNames = columns.length == 0 ? getColumnNames(entityClass, idAccessor, NOT_UPDATABLE) : columns;
-
-    return Queries.update(entityClass).set(columnNames).where().eq(Entities.getName(idAccessor)).toString();
-  }
-
-  private String[] getColumnNames(Class<?> entityClass, AccessibleObject idAccessor, ColumnIgnorer columnIgnorer) {
-    List<String> columnNames = new ArrayList<String>();
-    try {
-      if (idAccessor instanceof Field) {
-        for (Field field : entityClass.getDeclaredFields()) {
-          if (columnIgnorer.ignore(field) || isIgnorable(field) || isMultiValued(field.getType())) {
-            continue;
-          }
-          columnNames.add(Entities.getName(field));
-        }
-      } else {
-        for (PropertyDescriptor propertyDescriptor : Introspector.getBeanInfo(entityClass).getPropertyDescriptors()) {
-          Method readMethod = propertyDescriptor.getReadMethod();
-          if (columnIgnorer.ignore(readMethod) || isIgnorable(readMethod) || isMultiValued(propertyDescriptor.getPropertyType())) {
-            continue;
-          }
-          columnNames.add(Entities.getName(readMethod));
-        }
+    if (columns.length == 0) {
+      String sql = updateByIdCache.get(entityClass);
+      if (sql == null) {
+        sql = cache(updateByIdCache, entityClass, update(entityClass, EntityMetadata.of(entityClass).getUpdatableColumnNames()));
+      }
+
+      return sql;
+    }
+
+    StatementKey key = new StatementKey(entityClass, columns);
+    String sql = updateColumnsByIdCache.get(key);
+    if (sql == null) {
+      sql = cache(updateColumnsByIdCache, new StatementKey(entityClass, columns.clone()), update(entityClass, columns));
+    }
+
+    return sql;
+  }
+
+  /**
+   * @return A statement that inserts a row or, if a row with the same id exists, updates it. Its parameters are the id, followed by the columns of {@link #insert(Class)}.
+   *   Columns marked with @Column(insertable=false) are neither inserted nor updated. With {@link Dialect#H2}, the columns marked with @Column(updatable=false) are updated as well.
+   * @throws IllegalStateException if this SqlWriter was created without a {@link Dialect}.
+   */
+  public String upsert(Class<?> entityClass) {
+    if (dialect == null) {
+      throw new IllegalStateException("upsert requires a SqlWriter created with a Dialect");
+    }
+
+    String sql = upsertCache.get(entityClass);
+    if (sql == null) {
+      sql = cache(upsertCache, entityClass, upsert(EntityMetadata.of(entityClass)));
+    }
+
+    return sql;
+  }
+
+  private String upsert(EntityMetadata metadata) {
+    String idColumn = metadata.getIdColumnName();
+    String[] insertableColumns = metadata.getInsertableColumnNames();
+    String[] updatableColumns = updatableInsertedColumns(insertableColumns, metadata.getUpdatableColumnNames());
+    StringBuilder columns = new StringBuilder(idColumn);
+    for (String column : insertableColumns) {
+      columns.append(", ").append(column);
+    }
+    String values = parameters(insertableColumns.length + 1);
+
+    switch (dialect) {
+    case H2:
+      return "MERGE INTO " + metadata.getTableName() + " (" + columns + ") KEY (" + idColumn + ") VALUES " + values;
+    case POSTGRESQL:
+      StringBuilder onConflict = new StringBuilder("INSERT INTO " + metadata.getTableName() + " (" + columns + ") VALUES " + values + " ON CONFLICT (" + idColumn + ") DO ");
+      if (updatableColumns.length == 0) {
+        return onConflict.append("NOTHING").toString();
+      }
+      onConflict.append("UPDATE SET ");
+      for (int i = 0; i < updatableColumns.length; i++) {
+        onConflict.append(i == 0 ? "" : ", ").append(updatableColumns[i]).append(" = EXCLUDED.").append(updatableColumns[i]);
+      }
+      return onConflict.toString();
+    case MYSQL:
+      StringBuilder onDuplicateKey = new StringBuilder("INSERT INTO " + metadata.getTableName() + " (" + columns + ") VALUES " + values + " ON DUPLICATE KEY UPDATE ");
+      if (updatableColumns.length == 0) {
+        return onDuplicateKey.append(idColumn).append(" = ").append(idColumn).toString();
       }
-    } catch (IntrospectionException e) {
-      throw new RuntimeException(e);
+      for (int i = 0; i < updatableColumns.length; i++) {
+        onDuplicateKey.append(i == 0 ? "" : ", ").append(updatableColumns[i]).append(" = VALUES(").append(updatableColumns[i]).append(')');
+      }
+      return onDuplicateKey.toString();
+    default:
+      throw new IllegalStateException("Unknown dialect " + dialect);
     }
-    return columnNames.toArray(new String[0]);
   }
 
-  private boolean isIgnorable(AccessibleObject accessibleObject) {
-    return Entities.isStatic(((Member) accessibleObject)) || !Entities.isMapped(((Member) accessibleObject).getDeclaringClass()) || Entities.isTransient(accessibleObject) || Entities.isIdAccessor(accessibleObject) || Entities.isRelation(accessibleObject);
+  /**
+   * @return The updatable columns that are also inserted, as the others have no new value to be updated to.
+   */
+  private static String[] updatableInsertedColumns(String[] insertableColumns, String[] updatableColumns) {
+    List<String> insertable = Arrays.asList(insertableColumns);
+    List<String> columns = new ArrayList<String>();
+    for (String column : updatableColumns) {
+      if (insertable.contains(column)) {
+        columns.add(column);
+      }
+    }
+
+    return columns.toArray(new String[columns.size()]);
   }
 
-  private boolean isMultiValued(Class<?> type) {
-    return Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+  private String update(Class<?> entityClass, String[] columnNames) {
+    return Queries.update(entityClass).set(columnNames).where().eq(EntityMetadata.of(entityClass).getIdColumnName()).toString();
   }
 
-  private static interface ColumnIgnorer {
-    boolean ignore(AccessibleObject object);
+  /**
+   * @return (?, ?, ...) with count parameters
+   */
+  private static String parameters(int count) {
+    StringBuilder parameters = new StringBuilder("(");
+    for (int i = 0; i < count; i++) {
+      parameters.append(i == 0 ? "?" : ", ?");
+    }
+
+    return parameters.append(')').toString();
+  }
+
+  private static <K> String cache(ConcurrentMap<K, String> cache, K key, String sql) {
+    String existing = cache.putIfAbsent(key, sql);
+
+    return existing != null ? existing : sql;
   }
 
-  private static final ColumnIgnorer NOT_UPDATABLE = new ColumnIgnorer() {
+  private static final class StatementKey {
+    private final Class<?> entityClass;
+    private final Object[] parts;
+    private final int hashCode;
+
+    StatementKey(Class<?> entityClass, Object[] parts) {
+      this.entityClass = entityClass;
+      this.parts = parts;
+      this.hashCode = 31 * entityClass.hashCode() + Arrays.hashCode(parts);
+    }
+
     @Override
-    public boolean ignore(AccessibleObject object) {
-      return object.isAnnotationPresent(Column.class) && !object.getAnnotation(Column.class).updatable();
+    public int hashCode() {
+      return hashCode;
     }
-  };
 
-  private static final ColumnIgnorer NOT_INSERTABLE = new ColumnIgnorer() {
     @Override
-    public boolean ignore(AccessibleObject object) {
-      return object.isAnnotationPresent(Column.class) && !object.getAnnotation(Column.class).insertable();
+    public boolean equals(Object obj) {
+      if (!(obj instanceof StatementKey)) {
+        return false;
+      }
+
+      StatementKey other = (StatementKey) obj;
+
+      return entityClass == other.entityClass && Arrays.equals(parts, other.parts);
     }
-  };
+  }
 }
@@ -0,0 +1,235 @@
+package com.moandjiezana.dbutilsjpa;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * A QueryRunner bound to a single connection that keeps its PreparedStatements open and reuses them when the same SQL is executed again,
+ * so that the driver and the database do not parse and plan it again. As the SQL generated by {@link SqlWriter} only depends on the entity class,
+ * repeated operations within a unit of work mostly reuse statements.
+ *
+ * <pre><code>StatementCachingQueryRunner statements = new StatementCachingQueryRunner(connection);
+ * try {
+ *   JpaQueryRunner jpaQueryRunner = new JpaQueryRunner(statements);
+ *   // ...
+ * } finally {
+ *   statements.close();
+ * }</code></pre>
+ *
+ * The methods that do not take a Connection use the bound connection, which is never closed by this class. Methods given another connection behave like a plain QueryRunner.
+ * At most maxStatements statements are kept, the least recently used one is closed when another one is needed. Batch inserts and streams use statements that are not cached.
+ *
+ * Not thread-safe, like the connection it is bound to.
+ */
+public class StatementCachingQueryRunner extends QueryRunner {
+
+  public static final int DEFAULT_MAX_STATEMENTS = 64;
+
+  private final Connection connection;
+  private final Map<StatementKey, PreparedStatement> statements;
+  private final Set<Statement> cachedStatements = Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>());
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Keeps at most {@link #DEFAULT_MAX_STATEMENTS} statements.
+   */
+  public StatementCachingQueryRunner(Connection connection) {
+    this(connection, DEFAULT_MAX_STATEMENTS);
+  }
+
+  /**
+   * @param maxStatements Maximum number of statements kept open. Must be positive.
+   */
+  public StatementCachingQueryRunner(Connection connection, final int maxStatements) {
+    if (maxStatements < 1) {
+      throw new IllegalArgumentException("maxStatements must be positive, was " + maxStatements);
+    }
+
+    this.connection = connection;
+    this.statements = new LinkedHashMap<StatementKey, PreparedStatement>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+        if (size() <= maxStatements) {
+          return false;
+        }
+
+        cachedStatements.remove(eldest.getValue());
+        DbUtils.closeQuietly(eldest.getValue());
+
+        return true;
+      }
+    };
+  }
+
+  public Connection getConnection() {
+    return connection;
+  }
+
+  /**
+   * Inserts with a cached statement on the bound connection. Other overloads prepare a new statement, as QueryRunner does.
+   */
+  @Override
+  public <T> T insert(String sql, ResultSetHandler<T> rsh, Object... params) throws SQLException {
+    return insert(connection, sql, rsh, params);
+  }
+
+  @Override
+  public <T> T insert(Connection conn, String sql, ResultSetHandler<T> rsh, Object... params) throws SQLException {
+    if (conn != connection) {
+      return super.insert(conn, sql, rsh, params);
+    }
+    if (rsh == null) {
+      throw new SQLException("Null ResultSetHandler");
+    }
+
+    PreparedStatement statement = statement(sql, true);
+    ResultSet resultSet = null;
+    try {
+      fillStatement(statement, params);
+      statement.executeUpdate();
+      resultSet = statement.getGeneratedKeys();
+
+      return rsh.handle(resultSet);
+    } catch (SQLException e) {
+      rethrow(e, sql, params);
+      return null;
+    } finally {
+      DbUtils.close(resultSet);
+    }
+  }
+
+  /**
+   * Closes the cached statements. The connection is left open.
+   */
+  public void close() throws SQLException {
+    List<PreparedStatement> open = new ArrayList<PreparedStatement>(statements.values());
+    statements.clear();
+    cachedStatements.clear();
+
+    SQLException failure = null;
+    for (PreparedStatement statement : open) {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        failure = failure != null ? failure : e;
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * @return The number of statements currently open.
+   */
+  public int size() {
+    return statements.size();
+  }
+
+  /**
+   * @return The number of times a cached statement was reused.
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return The number of times a statement had to be prepared.
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  @Override
+  protected Connection prepareConnection() throws SQLException {
+    return connection;
+  }
+
+  @Override
+  protected void close(Connection conn) throws SQLException {
+    if (conn != connection) {
+      super.close(conn);
+    }
+  }
+
+  @Override
+  protected PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+    if (conn != connection) {
+      return super.prepareStatement(conn, sql);
+    }
+
+    return statement(sql, false);
+  }
+
+  @Override
+  protected void close(Statement stmt) throws SQLException {
+    if (!cachedStatements.contains(stmt)) {
+      super.close(stmt);
+    }
+  }
+
+  private PreparedStatement statement(String sql, boolean generatedKeys) throws SQLException {
+    StatementKey key = new StatementKey(sql, generatedKeys);
+    PreparedStatement statement = statements.get(key);
+
+    if (statement != null && !statement.isClosed()) {
+      hitCount++;
+      statement.clearParameters();
+      statement.clearBatch();
+
+      return statement;
+    }
+    if (statement != null) {
+      cachedStatements.remove(statement);
+    }
+
+    missCount++;
+    statement = generatedKeys ? super.prepareStatement(connection, sql, Statement.RETURN_GENERATED_KEYS) : super.prepareStatement(connection, sql);
+    cachedStatements.add(statement);
+    statements.put(key, statement);
+
+    return statement;
+  }
+
+  private static final class StatementKey {
+    private final String sql;
+    private final boolean generatedKeys;
+
+    StatementKey(String sql, boolean generatedKeys) {
+      this.sql = sql;
+      this.generatedKeys = generatedKeys;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * sql.hashCode() + (generatedKeys ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof StatementKey)) {
+        return false;
+      }
+
+      StatementKey other = (StatementKey) obj;
+
+      return generatedKeys == other.generatedKeys && sql.equals(other.sql);
+    }
+  }
+}
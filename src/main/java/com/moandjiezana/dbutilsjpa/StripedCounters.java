@@ -0,0 +1,62 @@
+package com.moandjiezana.dbutilsjpa;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed number of counters, each spread over stripes so that threads updating them at the same time rarely write to the same cache line.
+ * Threads are assigned a stripe by id. Reading a counter sums its stripes.
+ *
+ * Plays the role of java.util.concurrent.atomic.LongAdder, which is not available before Java 8. Thread-safe.
+ */
+final class StripedCounters {
+
+  private static final int LONGS_PER_CACHE_LINE = 8;
+  private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+  private final int stripeWidth;
+  private final AtomicLongArray cells;
+
+  /**
+   * @param counters The number of counters, identified by their index.
+   */
+  StripedCounters(int counters) {
+    this.stripeWidth = (counters + LONGS_PER_CACHE_LINE - 1) / LONGS_PER_CACHE_LINE * LONGS_PER_CACHE_LINE;
+    this.cells = new AtomicLongArray(STRIPES * stripeWidth);
+  }
+
+  void add(int counter, long value) {
+    cells.addAndGet(stripe() * stripeWidth + counter, value);
+  }
+
+  void increment(int counter) {
+    add(counter, 1);
+  }
+
+  /**
+   * @return The sum of the counter's stripes. Not a snapshot: updates made while summing may or may not be included.
+   */
+  long sum(int counter) {
+    long sum = 0;
+    for (int stripe = 0; stripe < STRIPES; stripe++) {
+      sum += cells.get(stripe * stripeWidth + counter);
+    }
+
+    return sum;
+  }
+
+  private static int stripe() {
+    return (int) Thread.currentThread().getId() & (STRIPES - 1);
+  }
+
+  /**
+   * @return processors rounded up to a power of two, at most 64
+   */
+  private static int stripes(int processors) {
+    int stripes = 1;
+    while (stripes < Math.min(processors, 64)) {
+      stripes <<= 1;
+    }
+
+    return stripes;
+  }
+}
@@ -0,0 +1,296 @@
+package com.moandjiezana.dbutilsjpa.internal;
+
+import com.moandjiezana.dbutilsjpa.Entities;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+
+/**
+ * The mapping of an entity class, introspected once on first use and then shared.
+ *
+ * Immutable and thread-safe. Arrays are returned as-is and must not be modified.
+ */
+public class EntityMetadata {
+
+  private static final ConcurrentMap<Class<?>, EntityMetadata> REGISTRY = new ConcurrentHashMap<Class<?>, EntityMetadata>();
+  private static final PropertyDescriptorWrapper[] EMPTY_PROPERTY_DESCRIPTOR_ARRAY = new PropertyDescriptorWrapper[0];
+
+  /**
+   * @return The metadata for entityClass. It is built the first time a class is seen, subsequent calls do not use reflection.
+   * @throws IllegalArgumentException if entityClass does not have a field or property annotated with @Id.
+   */
+  public static EntityMetadata of(Class<?> entityClass) {
+    EntityMetadata metadata = REGISTRY.get(entityClass);
+    if (metadata == null) {
+      metadata = new EntityMetadata(entityClass);
+      EntityMetadata existing = REGISTRY.putIfAbsent(entityClass, metadata);
+      if (existing != null) {
+        metadata = existing;
+      }
+    }
+
+    return metadata;
+  }
+
+  private final Class<?> entityClass;
+  private final String tableName;
+  private final AccessibleObject idAccessor;
+  private final PropertyDescriptorWrapper idProperty;
+  private final PropertyDescriptorWrapper[] properties;
+  private final PropertyDescriptorWrapper[] insertableProperties;
+  private final PropertyDescriptorWrapper[] updatableProperties;
+  private final PropertyDescriptorWrapper[] relations;
+  private final PropertyDescriptorWrapper[] persistentProperties;
+  private final String[] insertableColumnNames;
+  private final String[] updatableColumnNames;
+  private final boolean cacheable;
+  private volatile Constructor<?> constructor;
+  private final ConcurrentMap<String, Map<String, Integer>> columnIndexes = new ConcurrentHashMap<String, Map<String, Integer>>();
+
+  private EntityMetadata(Class<?> entityClass) {
+    this.entityClass = entityClass;
+    this.tableName = Entities.getName(entityClass);
+    this.idAccessor = findIdAccessor(entityClass);
+    this.properties = idAccessor instanceof Method ? PropertyDescriptorWrapper.getPropertyDescriptorsFromMethods(entityClass) : PropertyDescriptorWrapper.getPropertyDescriptorsFromFields(entityClass);
+
+    PropertyDescriptorWrapper id = null;
+    List<PropertyDescriptorWrapper> insertable = new ArrayList<PropertyDescriptorWrapper>();
+    List<PropertyDescriptorWrapper> updatable = new ArrayList<PropertyDescriptorWrapper>();
+    List<PropertyDescriptorWrapper> relationList = new ArrayList<PropertyDescriptorWrapper>();
+    List<PropertyDescriptorWrapper> persistent = new ArrayList<PropertyDescriptorWrapper>();
+
+    for (PropertyDescriptorWrapper property : properties) {
+      AccessibleObject accessibleObject = property.getAccessibleObject();
+
+      if (!Entities.isMapped(property.getMember().getDeclaringClass())) {
+        continue;
+      }
+
+      if ((property.getMember() instanceof Field || property.getWriteMethod() != null) && !isMultiValued(property.getPropertyType())) {
+        persistent.add(property);
+      }
+
+      if (property.isRelation()) {
+        relationList.add(property);
+        continue;
+      }
+
+      if (Entities.isIdAccessor(accessibleObject)) {
+        id = property;
+        continue;
+      }
+
+      if (isMultiValued(property.getPropertyType())) {
+        continue;
+      }
+
+      Column column = accessibleObject.getAnnotation(Column.class);
+      if (column == null || column.insertable()) {
+        insertable.add(property);
+      }
+      if (column == null || column.updatable()) {
+        updatable.add(property);
+      }
+    }
+
+    this.idProperty = id;
+    this.insertableProperties = insertable.toArray(EMPTY_PROPERTY_DESCRIPTOR_ARRAY);
+    this.updatableProperties = updatable.toArray(EMPTY_PROPERTY_DESCRIPTOR_ARRAY);
+    this.relations = relationList.toArray(EMPTY_PROPERTY_DESCRIPTOR_ARRAY);
+    this.persistentProperties = persistent.toArray(EMPTY_PROPERTY_DESCRIPTOR_ARRAY);
+    this.cacheable = entityClass.isAnnotationPresent(Cacheable.class) && entityClass.getAnnotation(Cacheable.class).value();
+    this.insertableColumnNames = columnNames(insertableProperties);
+    this.updatableColumnNames = columnNames(updatableProperties);
+  }
+
+  public Class<?> getEntityClass() {
+    return entityClass;
+  }
+
+  /**
+   * @return Name of corresponding table, as returned by {@link Entities#getName(Class)}.
+   */
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * @return The field or method annotated with @Id. {@link AccessibleObject#setAccessible(boolean)} has been called if necessary.
+   */
+  public AccessibleObject getIdAccessor() {
+    return idAccessor;
+  }
+
+  /**
+   * @return The property annotated with @Id, or null if it is not declared on a mapped class.
+   */
+  public PropertyDescriptorWrapper getIdProperty() {
+    return idProperty;
+  }
+
+  public String getIdColumnName() {
+    return idProperty != null ? idProperty.getColumnName() : Entities.getName(idAccessor);
+  }
+
+  /**
+   * @return All non-transient, non-static properties, using fields or JavaBean properties depending on where @Id is placed.
+   */
+  public PropertyDescriptorWrapper[] getProperties() {
+    return properties;
+  }
+
+  /**
+   * @return Properties written by an INSERT, in column order. Excludes the id, relations and @Column(insertable=false).
+   */
+  public PropertyDescriptorWrapper[] getInsertableProperties() {
+    return insertableProperties;
+  }
+
+  /**
+   * @return Properties written by an UPDATE, in column order. Excludes the id, relations and @Column(updatable=false).
+   */
+  public PropertyDescriptorWrapper[] getUpdatableProperties() {
+    return updatableProperties;
+  }
+
+  /**
+   * @return Properties annotated with OneToMany, ManyToOne or OneToOne.
+   */
+  public PropertyDescriptorWrapper[] getRelations() {
+    return relations;
+  }
+
+  /**
+   * @return The id, columns and ToOne relations that can be both read and written. Together, they make up the state of an entity.
+   */
+  public PropertyDescriptorWrapper[] getPersistentProperties() {
+    return persistentProperties;
+  }
+
+  /**
+   * @return true if the entity class is annotated with @Cacheable(true).
+   */
+  public boolean isCacheable() {
+    return cacheable;
+  }
+
+  /**
+   * @return A new instance, created with the no-argument constructor. The constructor does not need to be public.
+   */
+  public Object newInstance() {
+    try {
+      Constructor<?> noArgConstructor = constructor;
+      if (noArgConstructor == null) {
+        noArgConstructor = entityClass.getDeclaredConstructor();
+        if (!noArgConstructor.isAccessible()) {
+          noArgConstructor.setAccessible(true);
+        }
+        constructor = noArgConstructor;
+      }
+
+      return noArgConstructor.newInstance();
+    } catch (InstantiationException e) {
+      throw new RuntimeException(e);
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    } catch (InvocationTargetException e) {
+      throw new RuntimeException(e.getCause());
+    } catch (NoSuchMethodException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public String[] getInsertableColumnNames() {
+    return insertableColumnNames;
+  }
+
+  public String[] getUpdatableColumnNames() {
+    return updatableColumnNames;
+  }
+
+  /**
+   * @param foreignKeySuffix appended to the names of join columns when no name is explicitly specified in an annotation
+   * @return Unmodifiable map of lower-case column names to their index in {@link #getProperties()}. When several properties have the same column name, the first one wins.
+   */
+  public Map<String, Integer> getColumnIndex(String foreignKeySuffix) {
+    Map<String, Integer> columnIndex = columnIndexes.get(foreignKeySuffix);
+    if (columnIndex == null) {
+      columnIndex = columnIndex(properties, foreignKeySuffix);
+      Map<String, Integer> existing = columnIndexes.putIfAbsent(foreignKeySuffix, columnIndex);
+      if (existing != null) {
+        columnIndex = existing;
+      }
+    }
+
+    return columnIndex;
+  }
+
+  /**
+   * @return Unmodifiable map of lower-case column names to their index in properties. When several properties have the same column name, the first one wins.
+   */
+  public static Map<String, Integer> columnIndex(PropertyDescriptorWrapper[] properties, String foreignKeySuffix) {
+    Map<String, Integer> columnIndex = new HashMap<String, Integer>();
+    for (int i = properties.length - 1; i >= 0; i--) {
+      columnIndex.put(normalize(properties[i].getColumnName(foreignKeySuffix)), Integer.valueOf(i));
+    }
+
+    return Collections.unmodifiableMap(columnIndex);
+  }
+
+  /**
+   * @return columnName in the form used as a key by {@link #getColumnIndex(String)}.
+   */
+  public static String normalize(String columnName) {
+    return columnName.toLowerCase(Locale.ENGLISH);
+  }
+
+  private static AccessibleObject findIdAccessor(Class<?> type) {
+    for (Method method : type.getMethods()) {
+      if (Entities.isIdAccessor(method)) {
+        if (!method.isAccessible()) {
+          method.setAccessible(true);
+        }
+        return method;
+      }
+    }
+
+    for (Field field : type.getDeclaredFields()) {
+      if (Entities.isIdAccessor(field)) {
+        if (!field.isAccessible()) {
+          field.setAccessible(true);
+        }
+        return field;
+      }
+    }
+
+    throw new IllegalArgumentException(type.getName() + " does not have a field or property annotated with @Id");
+  }
+
+  private static String[] columnNames(PropertyDescriptorWrapper[] properties) {
+    String[] columnNames = new String[properties.length];
+    for (int i = 0; i < properties.length; i++) {
+      columnNames[i] = properties[i].getColumnName();
+    }
+
+    return columnNames;
+  }
+
+  private static boolean isMultiValued(Class<?> type) {
+    return type != null && (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type));
+  }
+}
@@ -0,0 +1,217 @@
+package com.moandjiezana.dbutilsjpa.internal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Reads and writes a single property. The underlying field or methods are resolved and made accessible once, when the accessor is created.
+ *
+ * The primitive setters write fields without boxing. Accessors backed by methods box the value before invoking the setter.
+ *
+ * Immutable and thread-safe.
+ */
+public abstract class PropertyAccessor {
+
+  public static PropertyAccessor forField(Field field) {
+    if (!field.isAccessible()) {
+      field.setAccessible(true);
+    }
+
+    return new FieldAccessor(field);
+  }
+
+  /**
+   * @param writeMethod may be null for read-only properties.
+   */
+  public static PropertyAccessor forMethods(Method readMethod, Method writeMethod) {
+    if (readMethod != null && !readMethod.isAccessible()) {
+      readMethod.setAccessible(true);
+    }
+    if (writeMethod != null && !writeMethod.isAccessible()) {
+      writeMethod.setAccessible(true);
+    }
+
+    return new MethodAccessor(readMethod, writeMethod);
+  }
+
+  private final Class<?> type;
+
+  PropertyAccessor(Class<?> type) {
+    this.type = type;
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public abstract Object get(Object target);
+
+  public abstract void set(Object target, Object value);
+
+  public void setInt(Object target, int value) {
+    set(target, Integer.valueOf(value));
+  }
+
+  public void setLong(Object target, long value) {
+    set(target, Long.valueOf(value));
+  }
+
+  public void setDouble(Object target, double value) {
+    set(target, Double.valueOf(value));
+  }
+
+  public void setFloat(Object target, float value) {
+    set(target, Float.valueOf(value));
+  }
+
+  public void setShort(Object target, short value) {
+    set(target, Short.valueOf(value));
+  }
+
+  public void setByte(Object target, byte value) {
+    set(target, Byte.valueOf(value));
+  }
+
+  public void setBoolean(Object target, boolean value) {
+    set(target, Boolean.valueOf(value));
+  }
+
+  public void setChar(Object target, char value) {
+    set(target, Character.valueOf(value));
+  }
+
+  private static final class FieldAccessor extends PropertyAccessor {
+
+    private final Field field;
+
+    FieldAccessor(Field field) {
+      super(field.getType());
+      this.field = field;
+    }
+
+    @Override
+    public Object get(Object target) {
+      try {
+        return field.get(target);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void set(Object target, Object value) {
+      try {
+        field.set(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void setInt(Object target, int value) {
+      try {
+        field.setInt(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void setLong(Object target, long value) {
+      try {
+        field.setLong(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void setDouble(Object target, double value) {
+      try {
+        field.setDouble(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void setFloat(Object target, float value) {
+      try {
+        field.setFloat(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void setShort(Object target, short value) {
+      try {
+        field.setShort(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void setByte(Object target, byte value) {
+      try {
+        field.setByte(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void setBoolean(Object target, boolean value) {
+      try {
+        field.setBoolean(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void setChar(Object target, char value) {
+      try {
+        field.setChar(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private static final class MethodAccessor extends PropertyAccessor {
+
+    private final Method readMethod;
+    private final Method writeMethod;
+
+    MethodAccessor(Method readMethod, Method writeMethod) {
+      super(readMethod != null ? readMethod.getReturnType() : writeMethod.getParameterTypes()[0]);
+      this.readMethod = readMethod;
+      this.writeMethod = writeMethod;
+    }
+
+    @Override
+    public Object get(Object target) {
+      try {
+        return readMethod.invoke(target);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      } catch (InvocationTargetException e) {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+
+    @Override
+    public void set(Object target, Object value) {
+      try {
+        writeMethod.invoke(target, value);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      } catch (InvocationTargetException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.moandjiezana.dbutilsjpa.internal;
 
 import com.moandjiezana.dbutilsjpa.Entities;
+import com.moandjiezana.dbutilsjpa.LazyReference;
 
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
@@ -8,13 +9,19 @@ import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Column;
+import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
 
 public class PropertyDescriptorWrapper extends PropertyDescriptor {
 
@@ -65,53 +72,62 @@ public class PropertyDescriptorWrapper extends PropertyDescriptor {
 
   private final Field field;
   private final PropertyDescriptor propertyDescriptor;
+  private final PropertyAccessor accessor;
+  private final Class<?> propertyType;
+  private final String columnName;
+  private final boolean relation;
+  private final boolean toOneRelation;
+  private final String joinColumnName;
+  private final Class<?> relationType;
+  private final boolean lazy;
 
   public PropertyDescriptorWrapper(String propertyName, Field field) throws IntrospectionException {
     super(propertyName, null, null);
     this.field = field;
-    field.setAccessible(true);
     this.propertyDescriptor = null;
+    this.accessor = PropertyAccessor.forField(field);
+    this.propertyType = field.getType();
+    this.columnName = Entities.getName(field);
+    this.relation = Entities.isRelation(field);
+    this.toOneRelation = Entities.isToOneRelation(field);
+    this.joinColumnName = joinColumnName(field);
+    this.relationType = relationType(field, propertyType, field.getGenericType());
+    this.lazy = isLazy(field, propertyType);
   }
 
   public PropertyDescriptorWrapper(PropertyDescriptor propertyDescriptor) throws IntrospectionException {
     super(propertyDescriptor.getName(), propertyDescriptor.getReadMethod(), propertyDescriptor.getWriteMethod());
     this.propertyDescriptor = propertyDescriptor;
     this.field = null;
+    Method readMethod = propertyDescriptor.getReadMethod();
+    this.accessor = PropertyAccessor.forMethods(readMethod, propertyDescriptor.getWriteMethod());
+    this.propertyType = propertyDescriptor.getPropertyType();
+    this.columnName = readMethod != null ? columnName(readMethod, propertyDescriptor.getName()) : propertyDescriptor.getName();
+    this.relation = readMethod != null && Entities.isRelation(readMethod);
+    this.toOneRelation = readMethod != null && Entities.isToOneRelation(readMethod);
+    this.joinColumnName = readMethod != null ? joinColumnName(readMethod) : null;
+    this.relationType = readMethod != null ? relationType(readMethod, propertyType, readMethod.getGenericReturnType()) : null;
+    this.lazy = readMethod != null && isLazy(readMethod, propertyType);
   }
 
   @Override
-  public synchronized Class<?> getPropertyType() {
-    return field != null ? field.getType() : propertyDescriptor.getPropertyType();
+  public Class<?> getPropertyType() {
+    return propertyType;
+  }
+
+  /**
+   * @return The accessor used by {@link #get(Object)} and {@link #set(Object, Object)}. Also provides primitive setters.
+   */
+  public PropertyAccessor getAccessor() {
+    return accessor;
   }
 
   public Object get(Object target) {
-    try {
-      if (field != null) {
-        return field.get(target);
-      } else {
-        return propertyDescriptor.getReadMethod().invoke(target);
-      }
-    } catch (IllegalAccessException e) {
-      throw new RuntimeException(e);
-    } catch (InvocationTargetException e) {
-      throw new RuntimeException(e.getCause());
-    }
+    return accessor.get(target);
   }
 
   public void set(Object target, Object value) {
-    try {
-      if (field != null) {
-        field.set(target, value);
-      } else {
-        propertyDescriptor.getWriteMethod().invoke(target, value);
-      }
-    } catch (IllegalArgumentException e) {
-      throw new RuntimeException(e);
-    } catch (IllegalAccessException e) {
-      throw new RuntimeException(e);
-    } catch (InvocationTargetException e) {
-      throw new RuntimeException(e);
-    }
+    accessor.set(target, value);
   }
 
   public AccessibleObject getAccessibleObject() {
@@ -122,17 +138,103 @@ public class PropertyDescriptorWrapper extends PropertyDescriptor {
     return field != null ? field : propertyDescriptor.getReadMethod();
   }
 
-  public String getColumnName(String defaultForeignKeySuffix) {
-    AccessibleObject accessibleObject = getAccessibleObject();
-    String columnName = getReadMethod() != null || field != null ? Entities.getName(accessibleObject) : getName();
+  /**
+   * @return Name of the column, as returned by {@link Entities#getName(AccessibleObject)}. Join columns are not taken into account.
+   */
+  public String getColumnName() {
+    return columnName;
+  }
 
-    if (Entities.isToOneRelation(accessibleObject)) {
-      if (accessibleObject.isAnnotationPresent(JoinColumn.class)) {
-        return accessibleObject.getAnnotation(JoinColumn.class).name();
+  public String getColumnName(String defaultForeignKeySuffix) {
+    if (toOneRelation) {
+      if (joinColumnName != null) {
+        return joinColumnName;
       }
       return columnName + defaultForeignKeySuffix;
     }
 
     return columnName;
   }
+
+  public boolean isRelation() {
+    return relation;
+  }
+
+  public boolean isToOneRelation() {
+    return toOneRelation;
+  }
+
+  /**
+   * @return For ToOne relations, the property type, or the type argument of a {@link LazyReference}. For OneToMany relations, the targetEntity or the type argument of the collection.
+   *   Otherwise, or if the type cannot be determined, null.
+   */
+  public Class<?> getRelationType() {
+    return relationType;
+  }
+
+  /**
+   * @return true if this is a ToOne relation declared as a {@link LazyReference} or with fetch = FetchType.LAZY.
+   */
+  public boolean isLazy() {
+    return lazy;
+  }
+
+  private static String columnName(Method readMethod, String propertyName) {
+    if (readMethod.isAnnotationPresent(Column.class)) {
+      String name = readMethod.getAnnotation(Column.class).name();
+      if (!name.isEmpty()) {
+        return name;
+      }
+    }
+
+    return propertyName;
+  }
+
+  private static Class<?> relationType(AccessibleObject accessibleObject, Class<?> propertyType, Type genericType) {
+    if (Entities.isToOneRelation(accessibleObject)) {
+      return propertyType == LazyReference.class ? typeArgument(genericType) : propertyType;
+    }
+
+    OneToMany oneToMany = accessibleObject.getAnnotation(OneToMany.class);
+    if (oneToMany == null) {
+      return null;
+    }
+
+    if (oneToMany.targetEntity() != void.class) {
+      return oneToMany.targetEntity();
+    }
+
+    return typeArgument(genericType);
+  }
+
+  /**
+   * @return The last type argument of genericType, or null if it is not a parameterized type whose last argument is a class.
+   */
+  private static Class<?> typeArgument(Type genericType) {
+    if (genericType instanceof ParameterizedType) {
+      Type[] typeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
+      Type typeArgument = typeArguments[typeArguments.length - 1];
+      if (typeArgument instanceof Class) {
+        return (Class<?>) typeArgument;
+      }
+    }
+
+    return null;
+  }
+
+  private static boolean isLazy(AccessibleObject accessibleObject, Class<?> propertyType) {
+    if (!Entities.isToOneRelation(accessibleObject)) {
+      return false;
+    }
+
+    ManyToOne manyToOne = accessibleObject.getAnnotation(ManyToOne.class);
+    OneToOne oneToOne = accessibleObject.getAnnotation(OneToOne.class);
+    FetchType fetchType = manyToOne != null ? manyToOne.fetch() : oneToOne.fetch();
+
+    return propertyType == LazyReference.class || fetchType == FetchType.LAZY;
+  }
+
+  private static String joinColumnName(AccessibleObject accessibleObject) {
+    return accessibleObject.isAnnotationPresent(JoinColumn.class) ? accessibleObject.getAnnotation(JoinColumn.class).name() : null;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class AsyncJpaQueryRunnerTest {
+
+  private final JpaQueryRunner jpaQueryRunner = mock(JpaQueryRunner.class);
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void should_return_result_of_jpa_query_runner() throws Exception {
+    SimpleEntity entity = new SimpleEntity();
+    when(jpaQueryRunner.query(SimpleEntity.class, 1L)).thenReturn(entity);
+    when(jpaQueryRunner.save(entity)).thenReturn(1);
+    AsyncJpaQueryRunner asyncRunner = new AsyncJpaQueryRunner(jpaQueryRunner);
+
+    assertSame(entity, asyncRunner.query(SimpleEntity.class, 1L).get(5, TimeUnit.SECONDS));
+    assertEquals(1, asyncRunner.save(entity).get(5, TimeUnit.SECONDS).intValue());
+
+    asyncRunner.shutdown();
+  }
+
+  @Test
+  public void should_wrap_exceptions() throws Exception {
+    when(jpaQueryRunner.delete(SimpleEntity.class, 1L)).thenThrow(new RuntimeException("failed"));
+    AsyncJpaQueryRunner asyncRunner = new AsyncJpaQueryRunner.Builder().executor(executor).build(jpaQueryRunner);
+
+    try {
+      asyncRunner.delete(SimpleEntity.class, 1L).get(5, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      assertEquals("failed", e.getCause().getMessage());
+      return;
+    }
+
+    throw new AssertionError("Expected an ExecutionException");
+  }
+
+  @Test
+  public void should_limit_concurrent_operations() throws Exception {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(2);
+    final CountDownLatch release = new CountDownLatch(1);
+    when(jpaQueryRunner.save(any())).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation) throws Throwable {
+        int current = running.incrementAndGet();
+        synchronized (maxRunning) {
+          maxRunning.set(Math.max(maxRunning.get(), current));
+        }
+        started.countDown();
+        release.await(5, TimeUnit.SECONDS);
+        running.decrementAndGet();
+
+        return 1;
+      }
+    });
+    AsyncJpaQueryRunner asyncRunner = new AsyncJpaQueryRunner.Builder().executor(executor).maxConcurrency(2).build(jpaQueryRunner);
+
+    List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < 10; i++) {
+      results.add(asyncRunner.save(new SimpleEntity()));
+    }
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    Thread.sleep(50);
+    assertEquals(2, running.get());
+    release.countDown();
+
+    for (Future<Integer> result : results) {
+      assertEquals(1, result.get(5, TimeUnit.SECONDS).intValue());
+    }
+    assertEquals(2, maxRunning.get());
+  }
+
+  @Test
+  public void should_not_shut_down_given_executor() {
+    new AsyncJpaQueryRunner.Builder().executor(executor).build(jpaQueryRunner).shutdown();
+
+    assertFalse(executor.isShutdown());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_non_positive_max_concurrency() {
+    new AsyncJpaQueryRunner.Builder().maxConcurrency(0);
+  }
+}
@@ -0,0 +1,118 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.moandjiezana.dbutilsjpa.internal.PropertyDescriptorWrapper;
+import com.moandjiezana.dbutilsjpa.testutils.ConvertedEntity;
+import com.moandjiezana.dbutilsjpa.testutils.EnumEntity;
+import com.moandjiezana.dbutilsjpa.testutils.EnumEntity.SomeEnum;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+import javax.persistence.AttributeConverter;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class ConverterRegistryTest {
+
+  private final ConverterRegistry converters = ConverterRegistry.DEFAULT;
+
+  @Test
+  public void should_convert_enum_by_name_by_default() throws Exception {
+    ColumnConverter converter = converters.forProperty(property(EnumEntity.class, "anEnum"));
+
+    assertEquals(String.class, converter.getColumnType());
+    assertEquals("VALUE_2", converter.toColumnValue(SomeEnum.VALUE_2));
+    assertEquals(SomeEnum.VALUE_2, converter.toAttribute("VALUE_2"));
+    assertNull(converter.toAttribute(null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_unknown_enum_name() throws Exception {
+    converters.forProperty(property(EnumEntity.class, "anEnum")).toAttribute("VALUE_3");
+  }
+
+  @Test
+  public void should_convert_enum_by_ordinal() throws Exception {
+    ColumnConverter converter = converters.forProperty(property(ConvertedEntity.class, "ordinal"));
+
+    assertEquals(Integer.class, converter.getColumnType());
+    assertEquals(1, converter.toColumnValue(SomeEnum.VALUE_2));
+    assertEquals(SomeEnum.VALUE_2, converter.toAttribute(1));
+  }
+
+  @Test
+  public void should_convert_uuid_to_string() throws Exception {
+    UUID uuid = UUID.randomUUID();
+    ColumnConverter converter = converters.forProperty(property(ConvertedEntity.class, "uuid"));
+
+    assertEquals(uuid.toString(), converter.toColumnValue(uuid));
+    assertEquals(uuid, converter.toAttribute(uuid.toString()));
+    assertEquals(uuid.toString(), converters.toColumnValue(uuid));
+  }
+
+  @Test
+  public void should_use_converter_declared_with_convert() throws Exception {
+    ColumnConverter converter = converters.forProperty(property(ConvertedEntity.class, "active"));
+
+    assertEquals(String.class, converter.getColumnType());
+    assertEquals("Y", converter.toColumnValue(Boolean.TRUE));
+    assertEquals(Boolean.FALSE, converter.toAttribute("N"));
+  }
+
+  @Test
+  public void should_not_convert_when_conversion_disabled() throws Exception {
+    assertNull(converters.forProperty(property(ConvertedEntity.class, "code")));
+    assertNull(converters.forProperty(property(ConvertedEntity.class, "id")));
+  }
+
+  @Test
+  public void should_choose_converter_once_per_property() throws Exception {
+    PropertyDescriptorWrapper property = property(EnumEntity.class, "anEnum");
+
+    assertSame(converters.forProperty(property), converters.forProperty(property));
+  }
+
+  @Test
+  public void should_prefer_registered_converter_to_built_in_one() throws Exception {
+    ConverterRegistry registry = new ConverterRegistry.Builder().converter(UUID.class, new AttributeConverter<UUID, byte[]>() {
+      @Override
+      public byte[] convertToDatabaseColumn(UUID attribute) {
+        return new byte[] { 1 };
+      }
+
+      @Override
+      public UUID convertToEntityAttribute(byte[] dbData) {
+        return null;
+      }
+    }).build();
+
+    assertEquals(1, ((byte[]) registry.forProperty(property(ConvertedEntity.class, "uuid")).toColumnValue(UUID.randomUUID())).length);
+  }
+
+  @Test
+  public void should_convert_java_time_types() throws Exception {
+    Class<?> localDateClass;
+    try {
+      localDateClass = Class.forName("java.time.LocalDate");
+    } catch (ClassNotFoundException e) {
+      Assume.assumeNoException(e);
+      return;
+    }
+
+    Method of = localDateClass.getMethod("of", int.class, int.class, int.class);
+    Object localDate = of.invoke(null, 2015, 3, 14);
+
+    Object columnValue = converters.toColumnValue(localDate);
+
+    assertEquals(java.sql.Date.valueOf("2015-03-14"), columnValue);
+  }
+
+  private static PropertyDescriptorWrapper property(Class<?> entityClass, String name) throws Exception {
+    return new PropertyDescriptorWrapper(name, entityClass.getField(name));
+  }
+}
@@ -0,0 +1,89 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.moandjiezana.dbutilsjpa.testutils.ArrayEntity;
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+public class DirtyTrackerTest {
+
+  private final DirtyTracker dirtyTracker = new DirtyTracker();
+
+  @Test
+  public void should_return_null_for_untracked_entity() {
+    assertFalse(dirtyTracker.isTracked(new MultiplePropertyEntity()));
+    assertNull(dirtyTracker.changedColumns(new MultiplePropertyEntity()));
+  }
+
+  @Test
+  public void should_return_changed_columns_in_column_order() {
+    MultiplePropertyEntity entity = entity();
+    dirtyTracker.snapshot(entity);
+
+    assertArrayEquals(new String[0], dirtyTracker.changedColumns(entity));
+
+    entity.birthDate = new Date(0);
+    entity.name = "changed";
+
+    assertArrayEquals(new String[] { "name", "birthDate" }, dirtyTracker.changedColumns(entity));
+  }
+
+  @Test
+  public void should_detect_date_changed_in_place() {
+    MultiplePropertyEntity entity = entity();
+    dirtyTracker.snapshot(entity);
+
+    entity.birthDate.setTime(0);
+
+    assertArrayEquals(new String[] { "birthDate" }, dirtyTracker.changedColumns(entity));
+  }
+
+  @Test
+  public void should_detect_arrays_changed_in_place() {
+    ArrayEntity entity = new ArrayEntity();
+    entity.id = 1L;
+    entity.scores = new int[] { 1, 2 };
+    entity.tags = new String[] { "a", "b" };
+    dirtyTracker.snapshot(entity);
+
+    assertArrayEquals(new String[0], dirtyTracker.changedColumns(entity));
+
+    entity.scores[0] = 3;
+
+    assertArrayEquals(new String[] { "scores" }, dirtyTracker.changedColumns(entity));
+
+    entity.tags[1] = "c";
+
+    assertArrayEquals(new String[] { "scores", "tags" }, dirtyTracker.changedColumns(entity));
+  }
+
+  @Test
+  public void should_track_by_identity() {
+    MultiplePropertyEntity entity = entity();
+    dirtyTracker.snapshot(entity);
+
+    assertTrue(dirtyTracker.isTracked(entity));
+    assertFalse(dirtyTracker.isTracked(entity()));
+
+    dirtyTracker.forget(entity);
+
+    assertFalse(dirtyTracker.isTracked(entity));
+  }
+
+  private MultiplePropertyEntity entity() {
+    MultiplePropertyEntity entity = new MultiplePropertyEntity();
+    entity.id = 1L;
+    entity.name = "name";
+    entity.age = 30;
+    entity.birthDate = new Date(1000000000L);
+
+    return entity;
+  }
+}
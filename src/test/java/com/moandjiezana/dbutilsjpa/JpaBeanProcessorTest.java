@@ -1,17 +1,24 @@
 package com.moandjiezana.dbutilsjpa;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.*;
 
+import java.beans.PropertyDescriptor;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.moandjiezana.dbutilsjpa.testutils.CustomNamePropertyEntity;
 import com.moandjiezana.dbutilsjpa.testutils.EnumEntity;
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+import com.moandjiezana.dbutilsjpa.testutils.ProtectedConstructorEntity;
 import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
 import com.moandjiezana.dbutilsjpa.testutils.SimplePropertyEntity;
 
@@ -79,6 +86,112 @@ public class JpaBeanProcessorTest {
     assertEquals(EnumEntity.SomeEnum.VALUE_2, entity.anEnum);
   }
 
+  @Test
+  public void should_read_primitive_columns_with_typed_getters() throws SQLException {
+    when(metaData.getColumnCount()).thenReturn(2);
+    setColumnName("id", 1);
+    setColumnName("age", 2);
+
+    setLongValue(resultSet, 1, 1L);
+    when(resultSet.getInt(2)).thenReturn(42);
+
+    MultiplePropertyEntity entity = processor.toBean(resultSet, MultiplePropertyEntity.class);
+
+    assertEquals(42, entity.age);
+    verify(resultSet, never()).getObject(2);
+  }
+
+  @Test
+  public void should_create_entity_with_protected_constructor() throws SQLException {
+    when(metaData.getColumnCount()).thenReturn(1);
+    setColumnName("id", 1);
+    setLongValue(resultSet, 1, Long.valueOf(6));
+
+    assertEquals(Long.valueOf(6), processor.toBean(resultSet, ProtectedConstructorEntity.class).id);
+  }
+
+  @Test
+  public void should_match_column_names_ignoring_case() throws SQLException {
+    when(metaData.getColumnCount()).thenReturn(1);
+    setColumnName("CUSTOMNAMEID", 1);
+
+    setLongValue(resultSet, 1, Long.valueOf(4));
+
+    CustomNamePropertyEntity entity = processor.toBean(resultSet, CustomNamePropertyEntity.class);
+
+    assertEquals(Long.valueOf(4), entity.getId());
+  }
+
+  @Test
+  public void should_map_repeated_queries_with_same_columns() throws SQLException {
+    when(metaData.getColumnCount()).thenReturn(1);
+    setColumnName("id", 1);
+
+    setLongValue(resultSet, 1, Long.valueOf(1));
+    assertEquals(Long.valueOf(1), processor.toBean(resultSet, SimpleEntity.class).getId());
+
+    setLongValue(resultSet, 1, Long.valueOf(2));
+    assertEquals(Long.valueOf(2), processor.toBean(resultSet, SimpleEntity.class).getId());
+  }
+
+  @Test
+  public void should_reuse_row_mapper_for_same_columns() throws SQLException {
+    when(metaData.getColumnCount()).thenReturn(1);
+    setColumnName("id", 1);
+    RowMapper<SimpleEntity> rowMapper = processor.rowMapper(metaData, SimpleEntity.class);
+
+    assertSame(rowMapper, processor.rowMapper(metaData, SimpleEntity.class));
+
+    when(metaData.getColumnCount()).thenReturn(2);
+    setColumnName("name", 2);
+    assertNotSame(rowMapper, processor.rowMapper(metaData, SimpleEntity.class));
+  }
+
+  @Test
+  public void should_map_each_row_of_a_list() throws SQLException {
+    when(metaData.getColumnCount()).thenReturn(3);
+    setColumnName("id", 1);
+    setColumnName("name", 2);
+    setColumnName("age", 3);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(resultSet.getLong(1)).thenReturn(1L, 2L);
+    when(resultSet.getString(2)).thenReturn("first", "second");
+    when(resultSet.getInt(3)).thenReturn(5, 0);
+
+    List<MultiplePropertyEntity> entities = processor.toBeanList(resultSet, MultiplePropertyEntity.class);
+
+    assertEquals(2, entities.size());
+    assertEquals("first", entities.get(0).name);
+    assertEquals(5, entities.get(0).age);
+    assertNull(entities.get(0).birthDate);
+    assertEquals("second", entities.get(1).name);
+    assertEquals(0, entities.get(1).age);
+  }
+
+  @Test
+  public void should_match_columns_with_overridden_mapColumnsToProperties() throws SQLException {
+    JpaBeanProcessor prefixedColumnsProcessor = new JpaBeanProcessor() {
+      @Override
+      protected int[] mapColumnsToProperties(ResultSetMetaData rsmd, PropertyDescriptor[] props) throws SQLException {
+        int[] columnToProperty = super.mapColumnsToProperties(rsmd, props);
+        for (int col = 1; col < columnToProperty.length; col++) {
+          for (int property = 0; property < props.length; property++) {
+            if (rsmd.getColumnName(col).equals("t_" + props[property].getName())) {
+              columnToProperty[col] = property;
+            }
+          }
+        }
+
+        return columnToProperty;
+      }
+    };
+    when(metaData.getColumnCount()).thenReturn(1);
+    setColumnName("t_id", 1);
+    setLongValue(resultSet, 1, Long.valueOf(3));
+
+    assertEquals(Long.valueOf(3), prefixedColumnsProcessor.toBean(resultSet, SimpleEntity.class).getId());
+  }
+
   private void setLongValue(ResultSet resultSet, int columnIndex, Long columnValue) throws SQLException {
     when(resultSet.getObject(columnIndex)).thenReturn(columnValue);
     when(resultSet.getLong(columnIndex)).thenReturn(columnValue);
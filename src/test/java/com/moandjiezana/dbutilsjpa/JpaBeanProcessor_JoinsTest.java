@@ -3,7 +3,9 @@ package com.moandjiezana.dbutilsjpa;
 import static co.mewf.sqlwriter.Queries.insert;
 import static co.mewf.sqlwriter.Queries.select;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import com.moandjiezana.dbutilsjpa.testutils.EntityWithJoin;
 import com.moandjiezana.dbutilsjpa.testutils.EnumEntity;
@@ -11,11 +13,15 @@ import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 import org.apache.commons.dbutils.BasicRowProcessor;
 import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.dbutils.handlers.BeanHandler;
+import org.apache.commons.dbutils.handlers.BeanListHandler;
 import org.apache.commons.dbutils.handlers.ScalarHandler;
 import org.junit.After;
 import org.junit.Before;
@@ -54,6 +60,59 @@ public class JpaBeanProcessor_JoinsTest {
     assertEquals("my name", entityWithJoin.simple.getName());
   }
 
+  @Test
+  public void should_join_many_to_one_on_every_row() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      Integer simpleEntityId = queryRunner.insert(conn, "INSERT INTO SimpleEntity(name) VALUES(?)", idHandler, "name " + i);
+      queryRunner.insert(conn, "INSERT INTO EntityWithJoin(simple_id) VALUES(?)", idHandler, simpleEntityId);
+    }
+
+    List<EntityWithJoin> entities = queryRunner.query(conn, "SELECT EntityWithJoin.*, SimpleEntity.* FROM EntityWithJoin, SimpleEntity WHERE EntityWithJoin.simple_id = SimpleEntity.id ORDER BY SimpleEntity.name", new BeanListHandler<EntityWithJoin>(EntityWithJoin.class, new BasicRowProcessor(new JpaBeanProcessor())));
+
+    assertEquals(3, entities.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals("name " + i, entities.get(i).simple.getName());
+      assertNull(entities.get(i).enumEntity);
+    }
+  }
+
+  @Test
+  public void should_resolve_repeated_related_entity_to_same_instance_with_identity_map() throws Exception {
+    Integer simpleEntityId = queryRunner.insert(conn, "INSERT INTO SimpleEntity(name) VALUES(?)", idHandler, "shared");
+    queryRunner.insert(conn, "INSERT INTO EntityWithJoin(simple_id) VALUES(?)", idHandler, simpleEntityId);
+    queryRunner.insert(conn, "INSERT INTO EntityWithJoin(simple_id) VALUES(?)", idHandler, simpleEntityId);
+    String sql = "SELECT EntityWithJoin.*, SimpleEntity.* FROM EntityWithJoin, SimpleEntity WHERE EntityWithJoin.simple_id = SimpleEntity.id ORDER BY EntityWithJoin.id";
+
+    List<EntityWithJoin> withIdentityMap = queryRunner.query(conn, sql, new BeanListHandler<EntityWithJoin>(EntityWithJoin.class, new BasicRowProcessor(new JpaBeanProcessor.Builder().identityMap(true).build())));
+    List<EntityWithJoin> withoutIdentityMap = queryRunner.query(conn, sql, new BeanListHandler<EntityWithJoin>(EntityWithJoin.class, new BasicRowProcessor(new JpaBeanProcessor())));
+
+    assertEquals(2, withIdentityMap.size());
+    assertSame(withIdentityMap.get(0).simple, withIdentityMap.get(1).simple);
+    assertEquals("shared", withIdentityMap.get(1).simple.getName());
+    assertNotSame(withoutIdentityMap.get(0).simple, withoutIdentityMap.get(1).simple);
+  }
+
+  @Test
+  public void should_share_instances_across_queries_with_same_identity_map() throws Exception {
+    Integer simpleEntityId = queryRunner.insert(conn, "INSERT INTO SimpleEntity(name) VALUES(?)", idHandler, "shared");
+    queryRunner.insert(conn, "INSERT INTO EntityWithJoin(simple_id) VALUES(?)", idHandler, simpleEntityId);
+    final JpaBeanProcessor processor = new JpaBeanProcessor();
+    final IdentityMap identityMap = new IdentityMap();
+    ResultSetHandler<List<EntityWithJoin>> handler = new ResultSetHandler<List<EntityWithJoin>>() {
+      @Override
+      public List<EntityWithJoin> handle(ResultSet rs) throws SQLException {
+        return processor.toBeanList(rs, EntityWithJoin.class, identityMap);
+      }
+    };
+    String sql = "SELECT EntityWithJoin.*, SimpleEntity.* FROM EntityWithJoin, SimpleEntity WHERE EntityWithJoin.simple_id = SimpleEntity.id";
+
+    EntityWithJoin first = queryRunner.query(conn, sql, handler).get(0);
+    EntityWithJoin second = queryRunner.query(conn, sql, handler).get(0);
+
+    assertSame(first, second);
+    assertEquals(2, identityMap.size());
+  }
+
   @Test
   public void should_ignore_join_if_not_in_select() throws SQLException {
     Integer simpleEntityId = queryRunner.insert(conn, "INSERT INTO SimpleEntity(name) VALUES(?)", new ScalarHandler<Integer>(), "my name");
@@ -0,0 +1,205 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.moandjiezana.dbutilsjpa.testutils.EnumEntity;
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+import com.moandjiezana.dbutilsjpa.testutils.TemporalEntity;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.dbutils.BasicRowProcessor;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.BeanListHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaBeanProcessor_ParallelMappingTest {
+  private static final int ROWS = 1000;
+
+  private Connection conn;
+  private final QueryRunner queryRunner = new QueryRunner();
+  private final AtomicInteger tasks = new AtomicInteger();
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final ExecutorService countingExecutor = new AbstractExecutorService() {
+    @Override
+    public void execute(Runnable command) {
+      tasks.incrementAndGet();
+      executor.execute(command);
+    }
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return null;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  };
+  private final JpaBeanProcessor processor = new JpaBeanProcessor.Builder().parallelMapping(countingExecutor, 100).build();
+
+  @Before
+  public void before() throws SQLException {
+    conn = DriverManager.getConnection("jdbc:h2:mem:");
+    queryRunner.update(conn, "CREATE TABLE MultiplePropertyEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR, age INT, birthDate DATE)");
+    queryRunner.update(conn, "CREATE TABLE EnumEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, anEnum VARCHAR)");
+    Object[][] params = new Object[ROWS][];
+    for (int i = 0; i < ROWS; i++) {
+      params[i] = new Object[] { "name " + i, i % 2 == 0 ? i : null, new java.sql.Date(i * 86400000L) };
+    }
+    queryRunner.batch(conn, "INSERT INTO MultiplePropertyEntity(name, age, birthDate) VALUES(?, ?, ?)", params);
+    queryRunner.update(conn, "CREATE TABLE TemporalEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, createdAt TIMESTAMP, startDate DATE, startTime TIME)");
+    queryRunner.update(conn, "INSERT INTO TemporalEntity(createdAt, startDate, startTime) "
+        + "SELECT DATEADD('SECOND', id * 3671, TIMESTAMP '2015-01-01 00:00:00.123'), DATEADD('DAY', id, DATE '2015-01-01'), CASEWHEN(MOD(id, 3) = 0, NULL, TIME '08:30:00') FROM MultiplePropertyEntity");
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void should_map_rows_in_order() throws SQLException {
+    List<MultiplePropertyEntity> parallel = query(processor);
+    List<MultiplePropertyEntity> serial = query(new JpaBeanProcessor());
+
+    assertEquals(ROWS, parallel.size());
+    assertEquals((ROWS - 100 + JpaBeanProcessor.PARALLEL_MAPPING_CHUNK_SIZE - 1) / JpaBeanProcessor.PARALLEL_MAPPING_CHUNK_SIZE, tasks.get());
+    for (int i = 0; i < ROWS; i++) {
+      assertEquals(serial.get(i).id, parallel.get(i).id);
+      assertEquals("name " + i, parallel.get(i).name);
+      assertEquals(i % 2 == 0 ? i : 0, parallel.get(i).age);
+      assertEquals(serial.get(i).birthDate, parallel.get(i).birthDate);
+    }
+  }
+
+  @Test
+  public void should_map_small_results_serially() throws SQLException {
+    List<MultiplePropertyEntity> entities = queryRunner.query(conn, "SELECT * FROM MultiplePropertyEntity WHERE id <= 100 ORDER BY id", handler(processor));
+
+    assertEquals(100, entities.size());
+    assertEquals(0, tasks.get());
+  }
+
+  @Test
+  public void should_convert_buffered_values() throws SQLException {
+    queryRunner.update(conn, "INSERT INTO EnumEntity(anEnum) SELECT CASEWHEN(MOD(id, 2) = 0, 'VALUE_1', 'VALUE_2') FROM MultiplePropertyEntity");
+
+    List<EnumEntity> entities = queryRunner.query(conn, "SELECT * FROM EnumEntity ORDER BY id", new BeanListHandler<EnumEntity>(EnumEntity.class, new BasicRowProcessor(processor)));
+
+    int value1Count = 0;
+    for (EnumEntity entity : entities) {
+      if (entity.anEnum == EnumEntity.SomeEnum.VALUE_1) {
+        value1Count++;
+      }
+    }
+    assertEquals(ROWS, entities.size());
+    assertEquals(ROWS / 2, value1Count);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_propagate_mapping_errors() throws SQLException {
+    queryRunner.update(conn, "INSERT INTO EnumEntity(anEnum) SELECT CASEWHEN(id = 500, 'UNKNOWN', 'VALUE_1') FROM MultiplePropertyEntity");
+
+    queryRunner.query(conn, "SELECT * FROM EnumEntity ORDER BY id", new BeanListHandler<EnumEntity>(EnumEntity.class, new BasicRowProcessor(processor)));
+  }
+
+  @Test
+  public void should_map_temporal_columns_as_serial_mapping_does() throws SQLException {
+    List<TemporalEntity> parallel = queryRunner.query(conn, "SELECT * FROM TemporalEntity ORDER BY id", new BeanListHandler<TemporalEntity>(TemporalEntity.class, new BasicRowProcessor(processor)));
+    List<TemporalEntity> serial = queryRunner.query(conn, "SELECT * FROM TemporalEntity ORDER BY id", new BeanListHandler<TemporalEntity>(TemporalEntity.class, new BasicRowProcessor(new JpaBeanProcessor())));
+
+    assertTemporalEntitiesEqual(serial, parallel);
+    assertTrue(tasks.get() > 0);
+  }
+
+  /**
+   * Some drivers return their own types from getObject, such as java.time values. Typed properties must be read with the typed getters on both paths.
+   */
+  @Test
+  public void should_not_read_typed_columns_with_getObject() throws SQLException {
+    BeanListHandler<TemporalEntity> parallelHandler = new BeanListHandler<TemporalEntity>(TemporalEntity.class, new BasicRowProcessor(processor));
+    BeanListHandler<TemporalEntity> serialHandler = new BeanListHandler<TemporalEntity>(TemporalEntity.class, new BasicRowProcessor(new JpaBeanProcessor()));
+    Statement statement = conn.createStatement();
+
+    List<TemporalEntity> parallel = parallelHandler.handle(withoutGetObject(statement.executeQuery("SELECT * FROM TemporalEntity ORDER BY id")));
+    List<TemporalEntity> serial = serialHandler.handle(withoutGetObject(statement.executeQuery("SELECT * FROM TemporalEntity ORDER BY id")));
+    statement.close();
+
+    assertTemporalEntitiesEqual(serial, parallel);
+    assertEquals(Timestamp.valueOf("2015-01-01 01:01:11.123"), parallel.get(0).createdAt);
+    assertEquals(java.sql.Date.valueOf("2015-01-02"), parallel.get(0).startDate);
+    assertEquals(Time.valueOf("08:30:00"), parallel.get(0).startTime);
+    assertNull(parallel.get(2).startTime);
+  }
+
+  private static void assertTemporalEntitiesEqual(List<TemporalEntity> serial, List<TemporalEntity> parallel) {
+    assertEquals(ROWS, parallel.size());
+    for (int i = 0; i < ROWS; i++) {
+      assertEquals(serial.get(i).id, parallel.get(i).id);
+      assertEquals(serial.get(i).createdAt, parallel.get(i).createdAt);
+      assertEquals(serial.get(i).startDate, parallel.get(i).startDate);
+      assertEquals(serial.get(i).startTime, parallel.get(i).startTime);
+    }
+  }
+
+  private static ResultSet withoutGetObject(final ResultSet resultSet) {
+    return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("getObject")) {
+          throw new UnsupportedOperationException("getObject");
+        }
+
+        try {
+          return method.invoke(resultSet, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+    });
+  }
+
+  private List<MultiplePropertyEntity> query(JpaBeanProcessor beanProcessor) throws SQLException {
+    return queryRunner.query(conn, "SELECT * FROM MultiplePropertyEntity ORDER BY id", handler(beanProcessor));
+  }
+
+  private BeanListHandler<MultiplePropertyEntity> handler(JpaBeanProcessor beanProcessor) {
+    return new BeanListHandler<MultiplePropertyEntity>(MultiplePropertyEntity.class, new BasicRowProcessor(beanProcessor));
+  }
+}
@@ -5,11 +5,16 @@ import static org.mockito.Mockito.stub;
 import static org.mockito.Mockito.verify;
 
 import com.moandjiezana.dbutilsjpa.testutils.CustomNamePropertyEntity;
+import com.moandjiezana.dbutilsjpa.testutils.IdOnlyEntity;
+import com.moandjiezana.dbutilsjpa.testutils.NoIdEntity;
 import com.moandjiezana.dbutilsjpa.testutils.NonUpdatableEntity;
 import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
@@ -18,6 +23,7 @@ import org.fest.reflect.core.Reflection;
 import org.fest.reflect.field.Invoker;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 public class JpaQueryRunnerTest {
@@ -48,6 +54,11 @@ public class JpaQueryRunnerTest {
     verify(queryRunner).update("UPDATE myTableName SET myTableName.customDateColumn = ? WHERE myTableName.customNameId = ?", entity.getDate(), entity.getId());
   }
 
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_save_of_entity_without_id_property() {
+    runner.save(new NoIdEntity());
+  }
+
   @Test
   public void should_ignore_non_updatable_column() throws SQLException {
     NonUpdatableEntity entity = new NonUpdatableEntity();
@@ -91,4 +102,85 @@ public class JpaQueryRunnerTest {
 
     verify(queryRunner).insert(Mockito.eq("INSERT INTO NonUpdatableEntity(name, notUpdated) VALUES(?, ?)"), Mockito.any(ResultSetHandler.class), Mockito.eq(entity.getName()), Mockito.eq(entity.getNotUpdated()));
   }
+
+  @Test
+  public void should_batch_insert_new_entities_and_set_generated_ids() throws SQLException {
+    NonUpdatableEntity first = new NonUpdatableEntity();
+    first.setName("first");
+    NonUpdatableEntity second = new NonUpdatableEntity();
+    second.setName("second");
+    stub(queryRunner.insertBatch(Mockito.eq("INSERT INTO NonUpdatableEntity(name, notUpdated) VALUES(?, ?)"), Mockito.any(ResultSetHandler.class), Mockito.any(Object[][].class))).toReturn(Arrays.<Object>asList(5L, 6L));
+
+    Assert.assertEquals(2, runner.saveAll(Arrays.asList(first, second)));
+
+    ArgumentCaptor<Object[][]> params = ArgumentCaptor.forClass(Object[][].class);
+    verify(queryRunner).insertBatch(Mockito.anyString(), Mockito.any(ResultSetHandler.class), params.capture());
+    Assert.assertArrayEquals(new Object[][] { { "first", null }, { "second", null } }, params.getValue());
+    Assert.assertEquals(Long.valueOf(5), first.getId());
+    Assert.assertEquals(Long.valueOf(6), second.getId());
+  }
+
+  @Test
+  public void should_batch_update_existing_entities() throws SQLException {
+    NonUpdatableEntity first = new NonUpdatableEntity();
+    first.setId(1L);
+    first.setName("first");
+    NonUpdatableEntity second = new NonUpdatableEntity();
+    second.setId(2L);
+    second.setName("second");
+    stub(queryRunner.batch(Mockito.anyString(), Mockito.any(Object[][].class))).toReturn(new int[] { 1, 1 });
+
+    Assert.assertEquals(2, runner.saveAll(Arrays.asList(first, second)));
+
+    ArgumentCaptor<Object[][]> params = ArgumentCaptor.forClass(Object[][].class);
+    verify(queryRunner).batch(Mockito.eq("UPDATE NonUpdatableEntity SET NonUpdatableEntity.name = ?, NonUpdatableEntity.notInserted = ? WHERE NonUpdatableEntity.id = ?"), params.capture());
+    Assert.assertArrayEquals(new Object[][] { { "first", null, 1L }, { "second", null, 2L } }, params.getValue());
+  }
+
+  @Test
+  public void should_split_batches() throws SQLException {
+    JpaQueryRunner batchingRunner = new JpaQueryRunner.Builder().batchSize(2).build(queryRunner);
+    List<SimpleEntity> entities = new ArrayList<SimpleEntity>();
+    for (int i = 0; i < 5; i++) {
+      SimpleEntity entity = new SimpleEntity();
+      Reflection.field("id").ofType(Long.class).in(entity).set(Long.valueOf(i));
+      entities.add(entity);
+    }
+    stub(queryRunner.batch(Mockito.anyString(), Mockito.any(Object[][].class))).toReturn(new int[] { 1, 1 }).toReturn(new int[] { 1, 1 }).toReturn(new int[] { 1 });
+
+    Assert.assertEquals(5, batchingRunner.saveAll(entities));
+
+    verify(queryRunner, Mockito.times(3)).batch(Mockito.anyString(), Mockito.any(Object[][].class));
+  }
+
+  @Test
+  public void should_insert_multiple_rows_per_statement() throws SQLException {
+    JpaQueryRunner bulkRunner = new JpaQueryRunner.Builder().maxParameters(5).build(queryRunner);
+    List<NonUpdatableEntity> entities = new ArrayList<NonUpdatableEntity>();
+    for (int i = 0; i < 3; i++) {
+      NonUpdatableEntity entity = new NonUpdatableEntity();
+      entity.setName("name " + i);
+      entities.add(entity);
+    }
+    stub(queryRunner.update(Mockito.anyString(), Mockito.<Object[]>anyVararg())).toReturn(2).toReturn(1);
+
+    Assert.assertEquals(3, bulkRunner.insertAll(entities));
+
+    verify(queryRunner).update("INSERT INTO NonUpdatableEntity(name, notUpdated) VALUES(?, ?), (?, ?)", "name 0", null, "name 1", null);
+    verify(queryRunner).update("INSERT INTO NonUpdatableEntity(name, notUpdated) VALUES(?, ?)", "name 2", null);
+  }
+
+  @Test
+  public void should_insert_one_row_per_statement_if_entity_has_no_insertable_columns() throws SQLException {
+    JpaQueryRunner bulkRunner = new JpaQueryRunner.Builder().batchSize(2).build(queryRunner);
+    stub(queryRunner.batch(Mockito.anyString(), Mockito.any(Object[][].class))).toReturn(new int[] { 1, 1 }).toReturn(new int[] { 1 });
+
+    Assert.assertEquals(3, bulkRunner.insertAll(Arrays.asList(new IdOnlyEntity(), new IdOnlyEntity(), new IdOnlyEntity())));
+
+    ArgumentCaptor<Object[][]> params = ArgumentCaptor.forClass(Object[][].class);
+    verify(queryRunner, Mockito.times(2)).batch(Mockito.eq(JpaQueryRunner.DEFAULT_SQL_WRITER.insert(IdOnlyEntity.class)), params.capture());
+    Assert.assertArrayEquals(new Object[][] { {}, {} }, params.getAllValues().get(0));
+    Assert.assertArrayEquals(new Object[][] { {} }, params.getAllValues().get(1));
+    verify(queryRunner, Mockito.never()).update(Mockito.anyString(), Mockito.<Object[]>anyVararg());
+  }
 }
@@ -0,0 +1,110 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaQueryRunner_BulkTest {
+  private Connection conn;
+  private QueryRunner queryRunner;
+  private JpaQueryRunner runner;
+  private final List<Long> ids = new ArrayList<Long>();
+
+  @Before
+  public void before() throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:bulk");
+    conn = dataSource.getConnection();
+    queryRunner = new QueryRunner(dataSource);
+    runner = new JpaQueryRunner.Builder().inListSize(4).build(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE MultiplePropertyEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR, age INT, birthDate DATE)");
+    for (int i = 0; i < 10; i++) {
+      ids.add(queryRunner.insert(conn, "INSERT INTO MultiplePropertyEntity(name, age) VALUES(?, ?)", new ScalarHandler<Long>(), "name " + i, i));
+    }
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_query_by_ids_in_chunks() {
+    List<MultiplePropertyEntity> entities = runner.queryAll(MultiplePropertyEntity.class, ids.subList(0, 7));
+
+    assertEquals(7, entities.size());
+  }
+
+  @Test
+  public void should_ignore_missing_and_duplicate_ids() {
+    List<MultiplePropertyEntity> entities = runner.queryAll(MultiplePropertyEntity.class, Arrays.asList(ids.get(0), ids.get(0), -1L));
+
+    assertEquals(1, entities.size());
+    assertEquals(ids.get(0), entities.get(0).id);
+  }
+
+  @Test
+  public void should_key_by_id() {
+    Map<Object, MultiplePropertyEntity> entities = runner.queryAllById(MultiplePropertyEntity.class, Arrays.asList(ids.get(2), ids.get(5)));
+
+    assertEquals(2, entities.size());
+    assertTrue(entities.containsKey(ids.get(5)));
+    assertEquals(5, entities.get(ids.get(5)).age);
+  }
+
+  @Test
+  public void should_delete_by_ids_in_chunks() throws SQLException {
+    assertEquals(6, runner.deleteAll(MultiplePropertyEntity.class, ids.subList(0, 6)));
+
+    assertEquals(4L, count().longValue());
+  }
+
+  @Test
+  public void should_delete_where() throws SQLException {
+    assertEquals(3, runner.deleteWhere(MultiplePropertyEntity.class, "age < ?", 3));
+
+    assertEquals(7L, count().longValue());
+  }
+
+  @Test
+  public void should_update_where() throws SQLException {
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("name", "old");
+
+    assertEquals(2, runner.updateWhere(MultiplePropertyEntity.class, values, "age >= ?", 8));
+
+    assertEquals("old", runner.query(MultiplePropertyEntity.class, ids.get(9)).name);
+    assertEquals("name 7", runner.query(MultiplePropertyEntity.class, ids.get(7)).name);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_unknown_column_in_update_where() {
+    runner.updateWhere(MultiplePropertyEntity.class, Collections.singletonMap("name = name; --", "x"), "1 = 1");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_empty_values_in_update_where() {
+    runner.updateWhere(MultiplePropertyEntity.class, Collections.<String, Object>emptyMap(), "1 = 1");
+  }
+
+  private Long count() throws SQLException {
+    return queryRunner.query(conn, "SELECT COUNT(*) FROM MultiplePropertyEntity", new ScalarHandler<Long>());
+  }
+}
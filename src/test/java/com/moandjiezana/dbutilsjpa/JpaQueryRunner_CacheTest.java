@@ -0,0 +1,172 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import com.moandjiezana.dbutilsjpa.testutils.EntityWithLazyJoin;
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaQueryRunner_CacheTest {
+  private Connection conn;
+  private QueryRunner queryRunner;
+  private JpaQueryRunner runner;
+  private final LruEntityCache cache = new LruEntityCache(100, 1, TimeUnit.MINUTES);
+  private final List<String> queries = new ArrayList<String>();
+  private Long id;
+  private Runnable afterQuery;
+
+  @Before
+  public void before() throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:cache");
+    conn = dataSource.getConnection();
+    queryRunner = new QueryRunner(dataSource) {
+      @Override
+      public <T> T query(String sql, ResultSetHandler<T> rsh, Object... params) throws SQLException {
+        queries.add(sql);
+        T result = super.query(sql, rsh, params);
+        if (afterQuery != null) {
+          Runnable runnable = afterQuery;
+          afterQuery = null;
+          runnable.run();
+        }
+
+        return result;
+      }
+    };
+    runner = new JpaQueryRunner.Builder().entityCache(cache, MultiplePropertyEntity.class).build(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE MultiplePropertyEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR, age INT, birthDate DATE)");
+    id = queryRunner.insert(conn, "INSERT INTO MultiplePropertyEntity(name, age) VALUES(?, ?)", new ScalarHandler<Long>(), "cached", 30);
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_serve_repeated_queries_from_cache() {
+    MultiplePropertyEntity first = runner.query(MultiplePropertyEntity.class, id);
+    MultiplePropertyEntity second = runner.query(MultiplePropertyEntity.class, id);
+
+    assertEquals(1, queries.size());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(id, second.id);
+    assertEquals("cached", second.name);
+    assertEquals(30, second.age);
+    assertNotSame(first, second);
+  }
+
+  @Test
+  public void should_not_share_changes_to_returned_entities() {
+    runner.query(MultiplePropertyEntity.class, id).name = "changed";
+
+    assertEquals("cached", runner.query(MultiplePropertyEntity.class, id).name);
+  }
+
+  @Test
+  public void should_not_share_dates_with_returned_entities() throws SQLException {
+    queryRunner.update(conn, "UPDATE MultiplePropertyEntity SET birthDate = ? WHERE id = ?", java.sql.Date.valueOf("1985-03-12"), id);
+    Date birthDate = runner.query(MultiplePropertyEntity.class, id).birthDate;
+    birthDate.setTime(0);
+
+    Date cachedBirthDate = runner.query(MultiplePropertyEntity.class, id).birthDate;
+    cachedBirthDate.setTime(0);
+
+    assertEquals(java.sql.Date.valueOf("1985-03-12"), runner.query(MultiplePropertyEntity.class, id).birthDate);
+  }
+
+  @Test
+  public void should_rebuild_references_to_related_entities() throws SQLException {
+    JpaQueryRunner lazyRunner = new JpaQueryRunner.Builder().lazyReferences(true).entityCache(cache, EntityWithLazyJoin.class).build(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE EntityWithLazyJoin(id BIGINT AUTO_INCREMENT PRIMARY KEY, simple_id BIGINT, multiple_id BIGINT)");
+    Long lazyJoinId = queryRunner.insert(conn, "INSERT INTO EntityWithLazyJoin(simple_id, multiple_id) VALUES(?, ?)", new ScalarHandler<Long>(), 3L, id);
+
+    EntityWithLazyJoin first = lazyRunner.query(EntityWithLazyJoin.class, lazyJoinId);
+    first.multiple.name = "changed";
+    EntityWithLazyJoin second = lazyRunner.query(EntityWithLazyJoin.class, lazyJoinId);
+
+    assertEquals(1, cache.getHitCount());
+    assertNotSame(first.simple, second.simple);
+    assertEquals(Long.valueOf(3), second.simple.getId());
+    assertNotSame(first.multiple, second.multiple);
+    assertEquals(id, second.multiple.id);
+    assertNull(second.multiple.name);
+  }
+
+  @Test
+  public void should_not_cache_row_read_before_concurrent_save() {
+    afterQuery = new Runnable() {
+      @Override
+      public void run() {
+        MultiplePropertyEntity saved = new MultiplePropertyEntity();
+        saved.id = id;
+        saved.name = "saved";
+        runner.save(saved);
+      }
+    };
+
+    assertEquals("cached", runner.query(MultiplePropertyEntity.class, id).name);
+    assertEquals("saved", runner.query(MultiplePropertyEntity.class, id).name);
+  }
+
+  @Test
+  public void should_use_same_entry_for_int_and_long_ids() {
+    runner.query(MultiplePropertyEntity.class, id);
+    runner.query(MultiplePropertyEntity.class, id.intValue());
+
+    assertEquals(1, queries.size());
+  }
+
+  @Test
+  public void should_evict_on_save() {
+    MultiplePropertyEntity entity = runner.query(MultiplePropertyEntity.class, id);
+    entity.name = "saved";
+    runner.save(entity);
+
+    assertEquals("saved", runner.query(MultiplePropertyEntity.class, id).name);
+    assertEquals(2, queries.size());
+  }
+
+  @Test
+  public void should_evict_on_delete() {
+    runner.query(MultiplePropertyEntity.class, id);
+    runner.delete(MultiplePropertyEntity.class, id);
+
+    assertNull(runner.query(MultiplePropertyEntity.class, id));
+  }
+
+  @Test
+  public void should_evict_class_on_update_where() {
+    runner.query(MultiplePropertyEntity.class, id);
+    runner.updateWhere(MultiplePropertyEntity.class, Collections.singletonMap("name", "bulk"), "age > ?", 18);
+
+    assertEquals("bulk", runner.query(MultiplePropertyEntity.class, id).name);
+  }
+
+  @Test
+  public void should_not_cache_without_entity_cache() {
+    JpaQueryRunner uncached = new JpaQueryRunner(queryRunner);
+    uncached.query(MultiplePropertyEntity.class, id);
+    uncached.query(MultiplePropertyEntity.class, id);
+
+    assertEquals(2, queries.size());
+  }
+}
@@ -0,0 +1,106 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.moandjiezana.dbutilsjpa.testutils.ConvertedEntity;
+import com.moandjiezana.dbutilsjpa.testutils.EnumEntity.SomeEnum;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ArrayHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaQueryRunner_ConvertersTest {
+  private Connection conn;
+  private QueryRunner queryRunner;
+  private JpaQueryRunner runner;
+
+  @Before
+  public void before() throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:converters");
+    conn = dataSource.getConnection();
+    queryRunner = new QueryRunner(dataSource);
+    runner = new JpaQueryRunner(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE ConvertedEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, ordinal INT, name VARCHAR, uuid VARCHAR, active CHAR(1), code VARCHAR)");
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_write_converted_values() throws SQLException {
+    ConvertedEntity entity = entity();
+
+    runner.save(entity);
+
+    Object[] row = queryRunner.query(conn, "SELECT ordinal, name, uuid, active, code FROM ConvertedEntity WHERE id = ?", new ArrayHandler(), entity.id);
+    assertEquals(1, row[0]);
+    assertEquals("VALUE_2", row[1]);
+    assertEquals(entity.uuid.toString(), row[2]);
+    assertEquals("Y", row[3]);
+    assertEquals("code", row[4]);
+  }
+
+  @Test
+  public void should_read_converted_values() {
+    ConvertedEntity entity = entity();
+    runner.save(entity);
+
+    ConvertedEntity loaded = runner.query(ConvertedEntity.class, entity.id);
+
+    assertEquals(SomeEnum.VALUE_2, loaded.ordinal);
+    assertEquals(SomeEnum.VALUE_2, loaded.name);
+    assertEquals(entity.uuid, loaded.uuid);
+    assertEquals(Boolean.TRUE, loaded.active);
+    assertEquals("code", loaded.code);
+  }
+
+  @Test
+  public void should_convert_updates_and_parameters() {
+    ConvertedEntity entity = entity();
+    runner.save(entity);
+    entity.active = Boolean.FALSE;
+    entity.ordinal = SomeEnum.VALUE_1;
+    runner.save(entity);
+
+    assertEquals(1, runner.updateWhere(ConvertedEntity.class, Collections.singletonMap("name", SomeEnum.VALUE_1), "uuid = ?", entity.uuid));
+
+    ConvertedEntity loaded = runner.query(ConvertedEntity.class, entity.id);
+    assertEquals(Boolean.FALSE, loaded.active);
+    assertEquals(SomeEnum.VALUE_1, loaded.ordinal);
+    assertEquals(SomeEnum.VALUE_1, loaded.name);
+  }
+
+  @Test
+  public void should_convert_stream_parameters() {
+    ConvertedEntity entity = entity();
+    runner.save(entity);
+
+    EntityStream<ConvertedEntity> entities = runner.stream(ConvertedEntity.class, "SELECT * FROM ConvertedEntity WHERE name = ? AND uuid = ?", SomeEnum.VALUE_2, entity.uuid);
+
+    assertEquals(entity.id, entities.next().id);
+    assertFalse(entities.hasNext());
+  }
+
+  private ConvertedEntity entity() {
+    ConvertedEntity entity = new ConvertedEntity();
+    entity.ordinal = SomeEnum.VALUE_2;
+    entity.name = SomeEnum.VALUE_2;
+    entity.uuid = UUID.randomUUID();
+    entity.active = Boolean.TRUE;
+    entity.code = "code";
+
+    return entity;
+  }
+}
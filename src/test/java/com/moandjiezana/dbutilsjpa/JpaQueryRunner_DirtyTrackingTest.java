@@ -0,0 +1,115 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+import com.moandjiezana.dbutilsjpa.testutils.Utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaQueryRunner_DirtyTrackingTest {
+  private Connection conn;
+  private QueryRunner queryRunner;
+  private JpaQueryRunner runner;
+  private final List<String> updates = new ArrayList<String>();
+  private final List<Long> ids = new ArrayList<Long>();
+
+  @Before
+  public void before() throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:dirty");
+    conn = dataSource.getConnection();
+    queryRunner = new QueryRunner(dataSource) {
+      @Override
+      public int update(String sql, Object... params) throws SQLException {
+        updates.add(Utils.singleLine(sql));
+        return super.update(sql, params);
+      }
+
+      @Override
+      public int[] batch(String sql, Object[][] params) throws SQLException {
+        updates.add(Utils.singleLine(sql));
+        return super.batch(sql, params);
+      }
+    };
+    runner = new JpaQueryRunner.Builder().dirtyTracker(new DirtyTracker()).build(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE MultiplePropertyEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR, age INT, birthDate DATE)");
+    for (int i = 0; i < 3; i++) {
+      ids.add(queryRunner.insert(conn, "INSERT INTO MultiplePropertyEntity(name, age) VALUES(?, ?)", new ScalarHandler<Long>(), "name " + i, i));
+    }
+    updates.clear();
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_only_update_changed_columns() {
+    MultiplePropertyEntity entity = runner.query(MultiplePropertyEntity.class, ids.get(0));
+    entity.age = 40;
+
+    assertEquals(1, runner.save(entity));
+    assertEquals(Arrays.asList("UPDATE MultiplePropertyEntity SET MultiplePropertyEntity.age = ? WHERE MultiplePropertyEntity.id = ?"), updates);
+    assertEquals(40, runner.query(MultiplePropertyEntity.class, ids.get(0)).age);
+    assertEquals("name 0", runner.query(MultiplePropertyEntity.class, ids.get(0)).name);
+  }
+
+  @Test
+  public void should_skip_update_when_nothing_changed() {
+    MultiplePropertyEntity entity = runner.query(MultiplePropertyEntity.class, ids.get(0));
+
+    assertEquals(0, runner.save(entity));
+    assertEquals(0, updates.size());
+  }
+
+  @Test
+  public void should_track_saved_entities() {
+    MultiplePropertyEntity entity = runner.query(MultiplePropertyEntity.class, ids.get(0));
+    entity.age = 40;
+    runner.save(entity);
+    updates.clear();
+
+    assertEquals(0, runner.save(entity));
+    assertEquals(0, updates.size());
+  }
+
+  @Test
+  public void should_update_all_columns_of_untracked_entity() {
+    MultiplePropertyEntity entity = new MultiplePropertyEntity();
+    entity.id = ids.get(1);
+    entity.name = "untracked";
+
+    runner.save(entity);
+
+    assertEquals(1, updates.size());
+    assertEquals("untracked", runner.query(MultiplePropertyEntity.class, ids.get(1)).name);
+  }
+
+  @Test
+  public void should_group_batch_updates_by_changed_columns() {
+    List<MultiplePropertyEntity> entities = runner.queryAll(MultiplePropertyEntity.class, ids);
+    entities.get(0).age = 10;
+    entities.get(1).age = 11;
+    entities.get(2).name = "renamed";
+
+    assertEquals(3, runner.saveAll(entities));
+    assertEquals(2, updates.size());
+
+    updates.clear();
+    assertEquals(0, runner.saveAll(entities));
+    assertEquals(0, updates.size());
+  }
+}
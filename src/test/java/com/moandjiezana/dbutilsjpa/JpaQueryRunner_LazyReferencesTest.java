@@ -0,0 +1,120 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.moandjiezana.dbutilsjpa.testutils.EntityWithLazyJoin;
+import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.dbutils.BasicRowProcessor;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.dbutils.handlers.BeanHandler;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaQueryRunner_LazyReferencesTest {
+  private Connection conn;
+  private QueryRunner queryRunner;
+  private JpaQueryRunner runner;
+  private final List<String> queries = new ArrayList<String>();
+  private Long simpleId;
+  private Long multipleId;
+  private Long entityId;
+
+  @Before
+  public void before() throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:lazy");
+    conn = dataSource.getConnection();
+    queryRunner = new QueryRunner(dataSource) {
+      @Override
+      public <T> T query(String sql, ResultSetHandler<T> rsh, Object... params) throws SQLException {
+        queries.add(sql);
+        return super.query(sql, rsh, params);
+      }
+    };
+    runner = new JpaQueryRunner.Builder().lazyReferences(true).build(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE SimpleEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR)");
+    queryRunner.update(conn, "CREATE TABLE MultiplePropertyEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR, age INT, birthDate DATE)");
+    queryRunner.update(conn, "CREATE TABLE EntityWithLazyJoin(id BIGINT AUTO_INCREMENT PRIMARY KEY, simple_id BIGINT, multiple_id BIGINT)");
+    simpleId = queryRunner.insert(conn, "INSERT INTO SimpleEntity(name) VALUES(?)", new ScalarHandler<Long>(), "simple");
+    multipleId = queryRunner.insert(conn, "INSERT INTO MultiplePropertyEntity(name) VALUES(?)", new ScalarHandler<Long>(), "multiple");
+    entityId = queryRunner.insert(conn, "INSERT INTO EntityWithLazyJoin(simple_id, multiple_id) VALUES(?, ?)", new ScalarHandler<Long>(), simpleId, multipleId);
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_load_lazy_reference_on_first_access() {
+    EntityWithLazyJoin entity = runner.query(EntityWithLazyJoin.class, entityId);
+    queries.clear();
+
+    assertFalse(entity.simple.isLoaded());
+    assertEquals(simpleId, entity.simple.getId());
+    assertEquals(0, queries.size());
+
+    SimpleEntity simple = entity.simple.get();
+
+    assertEquals("simple", simple.getName());
+    assertSame(simple, entity.simple.get());
+    assertEquals(1, queries.size());
+  }
+
+  @Test
+  public void should_use_joined_columns_when_present() throws SQLException {
+    EntityWithLazyJoin entity = queryRunner.query(conn, "SELECT EntityWithLazyJoin.*, SimpleEntity.* FROM EntityWithLazyJoin, SimpleEntity WHERE EntityWithLazyJoin.simple_id = SimpleEntity.id", new BeanHandler<EntityWithLazyJoin>(EntityWithLazyJoin.class, new BasicRowProcessor(new JpaBeanProcessor())));
+
+    assertTrue(entity.simple.isLoaded());
+    assertEquals("simple", entity.simple.get().getName());
+  }
+
+  @Test
+  public void should_set_reference_with_id_for_lazy_relation() {
+    EntityWithLazyJoin entity = runner.query(EntityWithLazyJoin.class, entityId);
+
+    assertEquals(multipleId, entity.multiple.id);
+    assertNull(entity.multiple.name);
+  }
+
+  @Test
+  public void should_set_lazy_relation_to_null_without_lazy_references() {
+    EntityWithLazyJoin entity = new JpaQueryRunner(queryRunner).query(EntityWithLazyJoin.class, entityId);
+
+    assertNull(entity.multiple);
+  }
+
+  @Test
+  public void should_set_null_when_join_column_is_null() throws SQLException {
+    Long id = queryRunner.insert(conn, "INSERT INTO EntityWithLazyJoin(simple_id) VALUES(NULL)", new ScalarHandler<Long>());
+
+    EntityWithLazyJoin entity = runner.query(EntityWithLazyJoin.class, id);
+
+    assertNull(entity.simple);
+    assertNull(entity.multiple);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_not_load_without_entity_loader() {
+    new JpaQueryRunner(queryRunner).query(EntityWithLazyJoin.class, entityId).simple.get();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_not_combine_lazy_references_with_custom_row_processor() {
+    new JpaQueryRunner.Builder().lazyReferences(true).rowProcessor(new BasicRowProcessor()).build(queryRunner);
+  }
+}
@@ -0,0 +1,159 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.moandjiezana.dbutilsjpa.QueryMetrics.Operation;
+import com.moandjiezana.dbutilsjpa.QueryStatistics.OperationStatistics;
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaQueryRunner_MetricsTest {
+  private Connection conn;
+  private QueryRunner queryRunner;
+  private QueryStatistics statistics;
+  private JpaQueryRunner runner;
+
+  @Before
+  public void before() throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:metrics");
+    conn = dataSource.getConnection();
+    queryRunner = new QueryRunner(dataSource);
+    statistics = new QueryStatistics();
+    runner = new JpaQueryRunner.Builder().metrics(statistics).batchSize(2).build(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE MultiplePropertyEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR, age INT, birthDate DATE)");
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_record_queries() {
+    MultiplePropertyEntity entity = entity("a");
+    runner.save(entity);
+
+    runner.query(MultiplePropertyEntity.class, entity.id);
+    runner.query(MultiplePropertyEntity.class, 404L);
+
+    OperationStatistics queries = statistics.get(MultiplePropertyEntity.class, Operation.QUERY);
+    assertEquals(2, queries.getCount());
+    assertEquals(1, queries.getRows());
+    assertEquals(0, queries.getFailures());
+    assertTrue(queries.getLatencyAtPercentile(100, TimeUnit.NANOSECONDS) > 0);
+    long parts = queries.getSqlTime(TimeUnit.NANOSECONDS) + queries.getExecuteTime(TimeUnit.NANOSECONDS) + queries.getMappingTime(TimeUnit.NANOSECONDS);
+    assertTrue(parts > 0);
+    assertTrue(parts <= queries.getMaxLatency(TimeUnit.NANOSECONDS) * 2);
+  }
+
+  @Test
+  public void should_record_rows_affected() {
+    runner.save(entity("a"));
+    runner.save(entity("b"));
+
+    assertEquals(2, runner.deleteWhere(MultiplePropertyEntity.class, "age > ?", 0));
+
+    assertEquals(2, statistics.get(MultiplePropertyEntity.class, Operation.SAVE).getRows());
+    assertEquals(1, statistics.get(MultiplePropertyEntity.class, Operation.DELETE_WHERE).getCount());
+    assertEquals(2, statistics.get(MultiplePropertyEntity.class, Operation.DELETE_WHERE).getRows());
+    assertNull(statistics.get(MultiplePropertyEntity.class, Operation.DELETE));
+  }
+
+  @Test
+  public void should_record_batch_sizes() {
+    List<MultiplePropertyEntity> entities = Arrays.asList(entity("a"), entity("b"), entity("c"));
+    runner.insertAll(entities);
+    for (int i = 0; i < entities.size(); i++) {
+      entities.get(i).id = Long.valueOf(i + 1);
+    }
+
+    runner.saveAll(entities);
+
+    OperationStatistics insertAll = statistics.get(MultiplePropertyEntity.class, Operation.INSERT_ALL);
+    assertEquals(1, insertAll.getBatches());
+    assertEquals(3, insertAll.getBatchedStatements());
+    OperationStatistics saveAll = statistics.get(MultiplePropertyEntity.class, Operation.SAVE_ALL);
+    assertEquals(1, saveAll.getCount());
+    assertEquals(3, saveAll.getRows());
+    assertEquals(2, saveAll.getBatches());
+    assertEquals(3, saveAll.getBatchedStatements());
+  }
+
+  @Test
+  public void should_report_inserts_and_updates_of_saveAll_once() {
+    List<MultiplePropertyEntity> entities = new ArrayList<MultiplePropertyEntity>();
+    for (String name : Arrays.asList("a", "b")) {
+      MultiplePropertyEntity entity = entity(name);
+      runner.save(entity);
+      entities.add(entity);
+    }
+    entities.add(entity("c"));
+
+    runner.saveAll(entities);
+
+    OperationStatistics saveAll = statistics.get(MultiplePropertyEntity.class, Operation.SAVE_ALL);
+    assertEquals(1, saveAll.getCount());
+    assertEquals(3, saveAll.getRows());
+    assertEquals(2, saveAll.getBatches());
+  }
+
+  @Test
+  public void should_record_cache_accesses() {
+    runner = new JpaQueryRunner.Builder().metrics(statistics).entityCache(new LruEntityCache(10, 1, TimeUnit.MINUTES), MultiplePropertyEntity.class).build(queryRunner);
+    MultiplePropertyEntity entity = entity("a");
+    runner.save(entity);
+
+    runner.query(MultiplePropertyEntity.class, entity.id);
+    runner.query(MultiplePropertyEntity.class, entity.id);
+    runner.query(MultiplePropertyEntity.class, entity.id);
+
+    assertEquals(2, statistics.getCacheHits(MultiplePropertyEntity.class));
+    assertEquals(1, statistics.getCacheMisses(MultiplePropertyEntity.class));
+    assertEquals(2d / 3, statistics.getCacheHitRate(MultiplePropertyEntity.class), 0.001);
+    assertEquals(3, statistics.get(MultiplePropertyEntity.class, Operation.QUERY).getRows());
+  }
+
+  @Test
+  public void should_record_failures() {
+    try {
+      runner.deleteWhere(MultiplePropertyEntity.class, "unknownColumn = ?", 1);
+      fail();
+    } catch (RuntimeException e) {
+      // expected
+    }
+
+    OperationStatistics deleteWhere = statistics.get(MultiplePropertyEntity.class, Operation.DELETE_WHERE);
+    assertEquals(1, deleteWhere.getFailures());
+    assertEquals(0, deleteWhere.getCount());
+  }
+
+  @Test
+  public void should_not_time_without_metrics() {
+    assertSame(OperationTimer.NONE, OperationTimer.start(QueryMetrics.NONE, Operation.QUERY, MultiplePropertyEntity.class));
+  }
+
+  private static MultiplePropertyEntity entity(String name) {
+    MultiplePropertyEntity entity = new MultiplePropertyEntity();
+    entity.name = name;
+    entity.age = 1;
+
+    return entity;
+  }
+}
@@ -0,0 +1,101 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.moandjiezana.dbutilsjpa.testutils.EntityWithJoin;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.dbutils.BasicRowProcessor;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.dbutils.handlers.BeanListHandler;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaQueryRunner_RelationsTest {
+  private Connection conn;
+  private QueryRunner queryRunner;
+  private JpaQueryRunner runner;
+  private final BasicRowProcessor rowProcessor = new BasicRowProcessor(new JpaBeanProcessor("_id", true));
+  private final List<String> queries = new ArrayList<String>();
+  private final List<Long> simpleIds = new ArrayList<Long>();
+
+  @Before
+  public void before() throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:relations");
+    conn = dataSource.getConnection();
+    queryRunner = new QueryRunner(dataSource) {
+      @Override
+      public <T> T query(String sql, ResultSetHandler<T> rsh, Object... params) throws SQLException {
+        queries.add(sql);
+        return super.query(sql, rsh, params);
+      }
+    };
+    runner = new JpaQueryRunner.Builder().rowProcessor(rowProcessor).inListSize(4).build(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE SimpleEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR)");
+    queryRunner.update(conn, "CREATE TABLE EntityWithJoin(id BIGINT AUTO_INCREMENT PRIMARY KEY, simple_id BIGINT, custom_enum_fk INT, oneToOne_id INT, customSuffix_csfk INT)");
+    for (int i = 0; i < 6; i++) {
+      simpleIds.add(queryRunner.insert(conn, "INSERT INTO SimpleEntity(name) VALUES(?)", new ScalarHandler<Long>(), "simple " + i));
+    }
+    for (int i = 0; i < 12; i++) {
+      queryRunner.update(conn, "INSERT INTO EntityWithJoin(simple_id) VALUES(?)", i < 10 ? simpleIds.get(i % 6) : null);
+    }
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_set_references_from_join_columns() throws SQLException {
+    List<EntityWithJoin> entities = entities();
+
+    assertEquals(simpleIds.get(0), entities.get(0).simple.getId());
+    assertNull(entities.get(0).simple.getName());
+    assertNull(entities.get(10).simple);
+    assertNull(entities.get(0).enumEntity);
+  }
+
+  @Test
+  public void should_fetch_relations_in_chunks() throws SQLException {
+    List<EntityWithJoin> entities = entities();
+    queries.clear();
+
+    runner.fetchRelations(EntityWithJoin.class, entities, "simple");
+
+    assertEquals(2, queries.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(simpleIds.get(i % 6), entities.get(i).simple.getId());
+      assertEquals("simple " + (i % 6), entities.get(i).simple.getName());
+    }
+    assertSame(entities.get(0).simple, entities.get(6).simple);
+    assertNull(entities.get(11).simple);
+  }
+
+  @Test
+  public void should_leave_references_to_missing_entities() throws SQLException {
+    List<EntityWithJoin> entities = entities();
+    queryRunner.update(conn, "DELETE FROM SimpleEntity WHERE id = ?", simpleIds.get(0));
+
+    runner.fetchRelations(EntityWithJoin.class, entities);
+
+    assertEquals(simpleIds.get(0), entities.get(0).simple.getId());
+    assertNull(entities.get(0).simple.getName());
+    assertEquals("simple 1", entities.get(1).simple.getName());
+  }
+
+  private List<EntityWithJoin> entities() throws SQLException {
+    return queryRunner.query(conn, "SELECT * FROM EntityWithJoin ORDER BY id", new BeanListHandler<EntityWithJoin>(EntityWithJoin.class, rowProcessor));
+  }
+}
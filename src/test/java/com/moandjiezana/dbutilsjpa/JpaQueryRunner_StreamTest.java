@@ -0,0 +1,120 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaQueryRunner_StreamTest {
+  private Connection conn;
+  private QueryRunner queryRunner;
+  private JpaQueryRunner runner;
+
+  @Before
+  public void before() throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:stream");
+    conn = dataSource.getConnection();
+    queryRunner = new QueryRunner(dataSource);
+    runner = new JpaQueryRunner.Builder().fetchSize(2).build(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE MultiplePropertyEntity(id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR, age INT, birthDate DATE)");
+    for (int i = 0; i < 5; i++) {
+      queryRunner.update(conn, "INSERT INTO MultiplePropertyEntity(name, age) VALUES(?, ?)", "name " + i, i);
+    }
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_map_rows_lazily() {
+    List<Integer> ages = new ArrayList<Integer>();
+    EntityStream<MultiplePropertyEntity> entities = runner.stream(MultiplePropertyEntity.class, "SELECT * FROM MultiplePropertyEntity WHERE age > ? ORDER BY id", 1);
+
+    for (MultiplePropertyEntity entity : entities) {
+      ages.add(entity.age);
+    }
+
+    assertEquals(3, ages.size());
+    assertEquals(Integer.valueOf(2), ages.get(0));
+    assertFalse(entities.hasNext());
+  }
+
+  @Test
+  public void should_stop_when_closed() {
+    EntityStream<MultiplePropertyEntity> entities = runner.stream(MultiplePropertyEntity.class, "SELECT * FROM MultiplePropertyEntity ORDER BY id");
+
+    assertEquals("name 0", entities.next().name);
+    entities.close();
+    entities.close();
+
+    assertFalse(entities.hasNext());
+  }
+
+  @Test
+  public void should_not_close_given_connection() throws SQLException {
+    EntityStream<MultiplePropertyEntity> entities = runner.stream(conn, MultiplePropertyEntity.class, "SELECT * FROM MultiplePropertyEntity");
+
+    while (entities.hasNext()) {
+      entities.next();
+    }
+
+    assertFalse(conn.isClosed());
+    assertTrue(entities.iterator() == entities);
+  }
+
+  @Test
+  public void should_map_rows_with_configured_bean_processor() {
+    JpaQueryRunner trackingRunner = new JpaQueryRunner.Builder().dirtyTracker(new DirtyTracker()).build(queryRunner);
+    EntityStream<MultiplePropertyEntity> entities = trackingRunner.stream(MultiplePropertyEntity.class, "SELECT * FROM MultiplePropertyEntity ORDER BY id");
+
+    MultiplePropertyEntity first = entities.next();
+    MultiplePropertyEntity second = entities.next();
+    entities.close();
+    second.name = "changed";
+
+    assertEquals(0, trackingRunner.save(first));
+    assertEquals(1, trackingRunner.save(second));
+  }
+
+  @Test
+  public void should_close_statement_and_connection_when_result_set_fails_to_close() throws SQLException {
+    Connection connection = mock(Connection.class);
+    Statement statement = mock(Statement.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    SQLException failure = new SQLException("result set");
+    doThrow(failure).when(resultSet).close();
+    doThrow(new SQLException("statement")).when(statement).close();
+    EntityStream<MultiplePropertyEntity> entities = new EntityStream<MultiplePropertyEntity>(connection, statement, resultSet, MultiplePropertyEntity.class, null, new JpaBeanProcessor(), null);
+
+    try {
+      entities.close();
+      fail();
+    } catch (RuntimeException e) {
+      assertEquals(failure, e.getCause());
+    }
+
+    verify(statement).close();
+    verify(connection).close();
+  }
+}
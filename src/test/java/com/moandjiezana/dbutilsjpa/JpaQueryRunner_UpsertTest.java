@@ -0,0 +1,99 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpaQueryRunner_UpsertTest {
+  private Connection conn;
+  private QueryRunner queryRunner;
+  private JpaQueryRunner runner;
+  private final List<String> statements = new ArrayList<String>();
+
+  @Before
+  public void before() throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:upsert");
+    conn = dataSource.getConnection();
+    queryRunner = new QueryRunner(dataSource) {
+      @Override
+      public int update(String sql, Object... params) throws SQLException {
+        statements.add(sql);
+        return super.update(sql, params);
+      }
+
+      @Override
+      public int[] batch(String sql, Object[][] params) throws SQLException {
+        statements.add(sql);
+        return super.batch(sql, params);
+      }
+    };
+    runner = new JpaQueryRunner.Builder().sqlWriter(new SqlWriter(Dialect.H2)).batchSize(2).build(queryRunner);
+    queryRunner.update(conn, "CREATE TABLE MultiplePropertyEntity(id BIGINT PRIMARY KEY, name VARCHAR, age INT, birthDate DATE)");
+    queryRunner.update(conn, "INSERT INTO MultiplePropertyEntity(id, name, age) VALUES(1, 'existing', 30)");
+    statements.clear();
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_insert_new_entity() {
+    assertEquals(1, runner.upsert(entity(2L, "new", 20)));
+
+    MultiplePropertyEntity entity = runner.query(MultiplePropertyEntity.class, 2L);
+    assertEquals("new", entity.name);
+    assertEquals(20, entity.age);
+    assertEquals(1, statements.size());
+  }
+
+  @Test
+  public void should_update_existing_entity() throws SQLException {
+    runner.upsert(entity(1L, "updated", 31));
+
+    MultiplePropertyEntity entity = runner.query(MultiplePropertyEntity.class, 1L);
+    assertEquals("updated", entity.name);
+    assertEquals(31, entity.age);
+    assertEquals(1L, queryRunner.query(conn, "SELECT COUNT(*) FROM MultiplePropertyEntity", new ScalarHandler<Long>()).longValue());
+  }
+
+  @Test
+  public void should_upsert_in_batches() throws SQLException {
+    int count = runner.upsertAll(Arrays.asList(entity(1L, "updated", 31), entity(2L, "second", 2), entity(3L, "third", 3)));
+
+    assertEquals(3, count);
+    assertEquals(2, statements.size());
+    assertEquals(3L, queryRunner.query(conn, "SELECT COUNT(*) FROM MultiplePropertyEntity", new ScalarHandler<Long>()).longValue());
+    assertEquals("updated", runner.query(MultiplePropertyEntity.class, 1L).name);
+    assertEquals("third", runner.query(MultiplePropertyEntity.class, 3L).name);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_entity_without_id() {
+    runner.upsert(entity(null, "no id", 0));
+  }
+
+  private MultiplePropertyEntity entity(Long id, String name, int age) {
+    MultiplePropertyEntity entity = new MultiplePropertyEntity();
+    entity.id = id;
+    entity.name = name;
+    entity.age = age;
+
+    return entity;
+  }
+}
@@ -0,0 +1,72 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LruEntityCacheTest {
+
+  @Test
+  public void should_count_hits_and_misses() {
+    LruEntityCache cache = new LruEntityCache(10, 1, TimeUnit.MINUTES);
+    cache.put(SimpleEntity.class, 1L, "a");
+
+    assertEquals("a", cache.get(SimpleEntity.class, 1L));
+    assertNull(cache.get(SimpleEntity.class, 2L));
+    assertNull(cache.get(MultiplePropertyEntity.class, 1L));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void should_evict_least_recently_used() {
+    LruEntityCache cache = new LruEntityCache(2, 1, TimeUnit.MINUTES, 1);
+    cache.put(SimpleEntity.class, 1L, "a");
+    cache.put(SimpleEntity.class, 2L, "b");
+    cache.get(SimpleEntity.class, 1L);
+    cache.put(SimpleEntity.class, 3L, "c");
+
+    assertNull(cache.get(SimpleEntity.class, 2L));
+    assertEquals("a", cache.get(SimpleEntity.class, 1L));
+    assertEquals("c", cache.get(SimpleEntity.class, 3L));
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void should_expire_entries() throws InterruptedException {
+    LruEntityCache cache = new LruEntityCache(10, 1, TimeUnit.MILLISECONDS);
+    cache.put(SimpleEntity.class, 1L, "a");
+    Thread.sleep(5);
+
+    assertNull(cache.get(SimpleEntity.class, 1L));
+    assertEquals(1, cache.getExpirationCount());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void should_evict_all_entities_of_class() {
+    LruEntityCache cache = new LruEntityCache(100, 1, TimeUnit.MINUTES);
+    for (long i = 0; i < 20; i++) {
+      cache.put(SimpleEntity.class, i, "simple");
+      cache.put(MultiplePropertyEntity.class, i, "multiple");
+    }
+
+    cache.evictAll(SimpleEntity.class);
+
+    assertEquals(20, cache.size());
+    assertNull(cache.get(SimpleEntity.class, 1L));
+    assertEquals("multiple", cache.get(MultiplePropertyEntity.class, 1L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_non_positive_size() {
+    new LruEntityCache(0, 1, TimeUnit.MINUTES);
+  }
+}
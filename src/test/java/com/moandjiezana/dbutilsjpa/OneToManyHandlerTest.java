@@ -0,0 +1,104 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.moandjiezana.dbutilsjpa.testutils.EntityWithRelations;
+import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OneToManyHandlerTest {
+  private static final String SQL = "SELECT EntityWithRelations.*, SimpleEntity.* FROM EntityWithRelations LEFT JOIN SimpleEntity ON SimpleEntity.parent_pk = EntityWithRelations.pk ORDER BY EntityWithRelations.pk, SimpleEntity.id";
+
+  private Connection conn;
+  private final QueryRunner queryRunner = new QueryRunner();
+  private final ScalarHandler<Integer> idHandler = new ScalarHandler<Integer>();
+  private final OneToManyHandler<EntityWithRelations> handler = new OneToManyHandler<EntityWithRelations>(EntityWithRelations.class, "simpleEntities");
+
+  @Before
+  public void before() throws SQLException {
+    conn = DriverManager.getConnection("jdbc:h2:mem:");
+    queryRunner.update(conn, "CREATE TABLE EntityWithRelations(pk INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR, emptyNameEntity_id INT, simplePropertyEntity_id INT)");
+    queryRunner.update(conn, "CREATE TABLE SimpleEntity(id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR, parent_pk INT)");
+  }
+
+  @After
+  public void after() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void should_collapse_parent_rows_and_collect_children() throws SQLException {
+    Integer first = queryRunner.insert(conn, "INSERT INTO EntityWithRelations(name) VALUES(?)", idHandler, "first");
+    Integer second = queryRunner.insert(conn, "INSERT INTO EntityWithRelations(name) VALUES(?)", idHandler, "second");
+    queryRunner.update(conn, "INSERT INTO SimpleEntity(name, parent_pk) VALUES(?, ?)", "child 1", first);
+    queryRunner.update(conn, "INSERT INTO SimpleEntity(name, parent_pk) VALUES(?, ?)", "child 2", first);
+    queryRunner.update(conn, "INSERT INTO SimpleEntity(name, parent_pk) VALUES(?, ?)", "child 3", second);
+
+    List<EntityWithRelations> parents = queryRunner.query(conn, SQL, handler);
+
+    assertEquals(2, parents.size());
+    assertEquals("first", parents.get(0).getName());
+    assertEquals(Long.valueOf(first), parents.get(0).getPk());
+    assertEquals(2, parents.get(0).getSimpleEntities().size());
+    assertEquals("child 1", parents.get(0).getSimpleEntities().get(0).getName());
+    assertEquals("child 2", parents.get(0).getSimpleEntities().get(1).getName());
+    assertEquals("second", parents.get(1).getName());
+    assertEquals(1, parents.get(1).getSimpleEntities().size());
+    assertEquals("child 3", parents.get(1).getSimpleEntities().get(0).getName());
+  }
+
+  @Test
+  public void should_set_empty_collection_when_parent_has_no_children() throws SQLException {
+    queryRunner.insert(conn, "INSERT INTO EntityWithRelations(name) VALUES(?)", idHandler, "childless");
+
+    List<EntityWithRelations> parents = queryRunner.query(conn, SQL, handler);
+
+    assertEquals(1, parents.size());
+    assertTrue(parents.get(0).getSimpleEntities().isEmpty());
+  }
+
+  @Test
+  public void should_snapshot_parents_and_children_with_dirty_tracker() throws SQLException {
+    Integer parentId = queryRunner.insert(conn, "INSERT INTO EntityWithRelations(name) VALUES(?)", idHandler, "parent");
+    queryRunner.update(conn, "INSERT INTO SimpleEntity(name, parent_pk) VALUES(?, ?)", "child", parentId);
+    DirtyTracker dirtyTracker = new DirtyTracker();
+    JpaBeanProcessor trackingProcessor = new JpaBeanProcessor.Builder().dirtyTracker(dirtyTracker).build();
+
+    EntityWithRelations parent = queryRunner.query(conn, SQL, new OneToManyHandler<EntityWithRelations>(EntityWithRelations.class, "simpleEntities", trackingProcessor)).get(0);
+    SimpleEntity child = parent.getSimpleEntities().get(0);
+
+    assertTrue(dirtyTracker.isTracked(parent));
+    assertTrue(dirtyTracker.isTracked(child));
+
+    child.setName("changed");
+
+    assertArrayEquals(new String[] { "name" }, dirtyTracker.changedColumns(child));
+  }
+
+  @Test
+  public void should_return_empty_list_when_no_rows() throws SQLException {
+    assertTrue(queryRunner.query(conn, SQL, handler).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_to_one_property() {
+    new OneToManyHandler<EntityWithRelations>(EntityWithRelations.class, "emptyNameEntity");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_unknown_property() {
+    new OneToManyHandler<EntityWithRelations>(EntityWithRelations.class, "unknown");
+  }
+}
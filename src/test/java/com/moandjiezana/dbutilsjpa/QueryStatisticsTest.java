@@ -0,0 +1,106 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.moandjiezana.dbutilsjpa.QueryMetrics.Operation;
+import com.moandjiezana.dbutilsjpa.QueryStatistics.OperationStatistics;
+import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class QueryStatisticsTest {
+
+  private final QueryStatistics statistics = new QueryStatistics();
+
+  @Test
+  public void should_sum_completed_operations() {
+    statistics.operationCompleted(Operation.QUERY, SimpleEntity.class, 10, 200, 30, 250, 1);
+    statistics.operationCompleted(Operation.QUERY, SimpleEntity.class, 20, 400, 60, 500, 0);
+
+    OperationStatistics queries = statistics.get(SimpleEntity.class, Operation.QUERY);
+    assertEquals(2, queries.getCount());
+    assertEquals(1, queries.getRows());
+    assertEquals(30, queries.getSqlTime(TimeUnit.NANOSECONDS));
+    assertEquals(600, queries.getExecuteTime(TimeUnit.NANOSECONDS));
+    assertEquals(90, queries.getMappingTime(TimeUnit.NANOSECONDS));
+    assertEquals(500, queries.getMaxLatency(TimeUnit.NANOSECONDS));
+    assertNull(statistics.get(SimpleEntity.class, Operation.DELETE));
+  }
+
+  @Test
+  public void should_estimate_latency_percentiles_within_bucket_precision() {
+    for (int i = 1; i <= 1000; i++) {
+      statistics.operationCompleted(Operation.SAVE, SimpleEntity.class, 0, 0, 0, i * 1000L, 1);
+    }
+
+    OperationStatistics saves = statistics.get(SimpleEntity.class, Operation.SAVE);
+    assertWithin(500000, saves.getLatencyAtPercentile(50, TimeUnit.NANOSECONDS));
+    assertWithin(990000, saves.getLatencyAtPercentile(99, TimeUnit.NANOSECONDS));
+    assertEquals(1000000, saves.getLatencyAtPercentile(100, TimeUnit.NANOSECONDS));
+    assertWithin(1000, saves.getLatencyAtPercentile(0, TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void should_place_values_in_buckets_that_contain_them() {
+    long[] values = { 0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE };
+    for (long value : values) {
+      int bucket = LatencyHistogram.bucket(value);
+      assertTrue(value + " above its bucket", value <= LatencyHistogram.highestValue(bucket));
+      assertTrue(value + " below its bucket", bucket == 0 || value > LatencyHistogram.highestValue(bucket - 1));
+    }
+  }
+
+  @Test
+  public void should_count_batches_failures_and_cache_accesses() {
+    statistics.batchExecuted(Operation.SAVE_ALL, SimpleEntity.class, 100);
+    statistics.batchExecuted(Operation.SAVE_ALL, SimpleEntity.class, 20);
+    statistics.operationFailed(Operation.SAVE_ALL, SimpleEntity.class, 1000);
+    statistics.cacheAccessed(SimpleEntity.class, true);
+    statistics.cacheAccessed(SimpleEntity.class, false);
+    statistics.cacheAccessed(SimpleEntity.class, true);
+    statistics.cacheAccessed(SimpleEntity.class, true);
+
+    OperationStatistics saveAll = statistics.get(SimpleEntity.class, Operation.SAVE_ALL);
+    assertEquals(2, saveAll.getBatches());
+    assertEquals(120, saveAll.getBatchedStatements());
+    assertEquals(1, saveAll.getFailures());
+    assertEquals(0, saveAll.getCount());
+    assertEquals(0.75, statistics.getCacheHitRate(SimpleEntity.class), 0.0001);
+    assertEquals(0, statistics.getCacheHitRate(String.class), 0.0001);
+  }
+
+  @Test
+  public void should_not_lose_updates_from_concurrent_threads() throws InterruptedException {
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            statistics.operationCompleted(Operation.QUERY, SimpleEntity.class, 1, 1, 1, 100, 2);
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    OperationStatistics queries = statistics.get(SimpleEntity.class, Operation.QUERY);
+    assertEquals(80000, queries.getCount());
+    assertEquals(160000, queries.getRows());
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("expected " + expected + " within 1/16th, was " + actual, Math.abs(actual - expected) <= expected / 16 + 1);
+  }
+}
@@ -24,4 +24,14 @@ public class SqlWriterDeleteTest {
     assertEquals("DELETE FROM myTableName WHERE myTableName.customNameId = ?", sql);
   }
 
+  @Test
+  public void should_delete_by_ids() {
+    assertEquals("DELETE FROM SimpleEntity WHERE SimpleEntity.id IN (?, ?)", sqlWriter.deleteByIds(SimpleEntity.class, 2));
+  }
+
+  @Test
+  public void should_delete_where() {
+    assertEquals("DELETE FROM SimpleEntity WHERE name LIKE ?", sqlWriter.deleteWhere(SimpleEntity.class, "name LIKE ?"));
+  }
+
 }
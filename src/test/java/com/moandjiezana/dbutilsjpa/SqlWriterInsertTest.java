@@ -1,8 +1,10 @@
 package com.moandjiezana.dbutilsjpa;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import com.moandjiezana.dbutilsjpa.testutils.CustomNamePropertyEntity;
+import com.moandjiezana.dbutilsjpa.testutils.NonUpdatableEntity;
 import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
 import com.moandjiezana.dbutilsjpa.testutils.Utils;
 
@@ -25,4 +27,17 @@ public class SqlWriterInsertTest {
 
     assertEquals("INSERT INTO myTableName(customDateColumn) VALUES(?)", Utils.singleLine(sql));
   }
+
+  @Test
+  public void should_insert_multiple_rows() {
+    String sql = sqlWriter.insert(NonUpdatableEntity.class, 3);
+
+    assertEquals("INSERT INTO NonUpdatableEntity(name, notUpdated) VALUES(?, ?), (?, ?), (?, ?)", Utils.singleLine(sql));
+    assertSame(sql, sqlWriter.insert(NonUpdatableEntity.class, 3));
+  }
+
+  @Test
+  public void should_use_single_row_insert_for_one_row() {
+    assertSame(sqlWriter.insert(SimpleEntity.class), sqlWriter.insert(SimpleEntity.class, 1));
+  }
 }
@@ -62,6 +62,12 @@ public class SqlWriterSelectTest {
     assertEquals("SELECT EmptyNameEntity.* FROM EmptyNameEntity WHERE EmptyNameEntity.id = ?", sql);
   }
 
+  @Test
+  public void should_select_by_ids() {
+    assertEquals("SELECT myTableName.* FROM myTableName WHERE myTableName.customNameId IN (?, ?, ?)", sqlWriter.selectByIds(CustomNameEntity.class, 3));
+    Assert.assertSame(sqlWriter.selectByIds(CustomNameEntity.class, 3), sqlWriter.selectByIds(CustomNameEntity.class, 3));
+  }
+
   private void assertEquals(String expected, String actual) {
     Assert.assertEquals(expected, Utils.singleLine(actual));
   }
@@ -1,6 +1,7 @@
 package com.moandjiezana.dbutilsjpa;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import com.moandjiezana.dbutilsjpa.testutils.CustomNamePropertyEntity;
 import com.moandjiezana.dbutilsjpa.testutils.EntityWithRelations;
@@ -41,4 +42,25 @@ public class SqlWriterUpdateTest {
 
     assertEquals("UPDATE MultiplePropertyEntity SET MultiplePropertyEntity.age = ? WHERE MultiplePropertyEntity.id = ?", Utils.singleLine(sql));
   }
+
+  @Test
+  public void should_update_where() {
+    String sql = sqlWriter.updateWhere(MultiplePropertyEntity.class, "age > ?", "name", "age");
+
+    assertEquals("UPDATE MultiplePropertyEntity SET MultiplePropertyEntity.name = ?, MultiplePropertyEntity.age = ? WHERE age > ?", Utils.singleLine(sql));
+  }
+
+  @Test
+  public void should_reuse_generated_sql() {
+    assertSame(sqlWriter.updateById(SimpleEntity.class), sqlWriter.updateById(SimpleEntity.class));
+    assertSame(sqlWriter.updateById(MultiplePropertyEntity.class, "age", "name"), sqlWriter.updateById(MultiplePropertyEntity.class, "age", "name"));
+  }
+
+  @Test
+  public void should_cache_column_subsets_separately() {
+    String sql = sqlWriter.updateById(MultiplePropertyEntity.class, "name");
+
+    assertEquals("UPDATE MultiplePropertyEntity SET MultiplePropertyEntity.name = ? WHERE MultiplePropertyEntity.id = ?", Utils.singleLine(sql));
+    assertEquals("UPDATE MultiplePropertyEntity SET MultiplePropertyEntity.age = ? WHERE MultiplePropertyEntity.id = ?", Utils.singleLine(sqlWriter.updateById(MultiplePropertyEntity.class, "age")));
+  }
 }
@@ -0,0 +1,46 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.moandjiezana.dbutilsjpa.testutils.NonUpdatableEntity;
+import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
+import com.moandjiezana.dbutilsjpa.testutils.Utils;
+
+import org.junit.Test;
+
+public class SqlWriterUpsertTest {
+
+  @Test
+  public void should_merge_on_h2() {
+    String sql = new SqlWriter(Dialect.H2).upsert(SimpleEntity.class);
+
+    assertEquals("MERGE INTO SimpleEntity (id, name) KEY (id) VALUES (?, ?)", Utils.singleLine(sql));
+  }
+
+  @Test
+  public void should_update_on_conflict_on_postgresql() {
+    String sql = new SqlWriter(Dialect.POSTGRESQL).upsert(NonUpdatableEntity.class);
+
+    assertEquals("INSERT INTO NonUpdatableEntity (id, name, notUpdated) VALUES (?, ?, ?) ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name", Utils.singleLine(sql));
+  }
+
+  @Test
+  public void should_update_on_duplicate_key_on_mysql() {
+    String sql = new SqlWriter(Dialect.MYSQL).upsert(NonUpdatableEntity.class);
+
+    assertEquals("INSERT INTO NonUpdatableEntity (id, name, notUpdated) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE name = VALUES(name)", Utils.singleLine(sql));
+  }
+
+  @Test
+  public void should_cache_statement() {
+    SqlWriter sqlWriter = new SqlWriter(Dialect.H2);
+
+    assertSame(sqlWriter.upsert(SimpleEntity.class), sqlWriter.upsert(SimpleEntity.class));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_require_dialect() {
+    new SqlWriter().upsert(SimpleEntity.class);
+  }
+}
@@ -0,0 +1,93 @@
+package com.moandjiezana.dbutilsjpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.moandjiezana.dbutilsjpa.testutils.SimpleEntity;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StatementCachingQueryRunnerTest {
+  private Connection conn;
+  private StatementCachingQueryRunner queryRunner;
+  private JpaQueryRunner runner;
+
+  @Before
+  public void before() throws SQLException {
+    conn = DriverManager.getConnection("jdbc:h2:mem:");
+    queryRunner = new StatementCachingQueryRunner(conn, 3);
+    runner = new JpaQueryRunner(queryRunner);
+    conn.createStatement().execute("CREATE TABLE SimpleEntity(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR)");
+  }
+
+  @After
+  public void after() throws SQLException {
+    queryRunner.close();
+    conn.close();
+  }
+
+  @Test
+  public void should_reuse_statements() {
+    SimpleEntity entity = new SimpleEntity();
+    entity.setName("first");
+    runner.save(entity);
+    SimpleEntity other = new SimpleEntity();
+    other.setName("second");
+    runner.save(other);
+
+    entity.setName("renamed");
+    runner.save(entity);
+    runner.save(other);
+
+    assertEquals("renamed", runner.query(SimpleEntity.class, entity.getId()).getName());
+    assertEquals("second", runner.query(SimpleEntity.class, other.getId()).getName());
+    assertEquals(3, queryRunner.getMissCount());
+    assertEquals(3, queryRunner.getHitCount());
+    assertEquals(3, queryRunner.size());
+  }
+
+  @Test
+  public void should_rebind_null_parameters() {
+    SimpleEntity entity = new SimpleEntity();
+    entity.setName("name");
+    runner.save(entity);
+
+    entity.setName(null);
+    runner.save(entity);
+
+    assertNull(runner.query(SimpleEntity.class, entity.getId()).getName());
+  }
+
+  @Test
+  public void should_close_least_recently_used_statement() throws SQLException {
+    for (int i = 0; i < 5; i++) {
+      queryRunner.query("SELECT " + i, new ScalarHandler<Integer>());
+    }
+
+    assertEquals(3, queryRunner.size());
+    assertEquals(Integer.valueOf(0), queryRunner.query("SELECT 0", new ScalarHandler<Integer>()));
+    assertEquals(6, queryRunner.getMissCount());
+  }
+
+  @Test
+  public void should_leave_connection_open() throws SQLException {
+    runner.delete(SimpleEntity.class, 1L);
+    queryRunner.close();
+
+    assertEquals(0, queryRunner.size());
+    assertFalse(conn.isClosed());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_non_positive_max_statements() {
+    new StatementCachingQueryRunner(conn, 0);
+  }
+}
@@ -0,0 +1,44 @@
+package com.moandjiezana.dbutilsjpa.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.moandjiezana.dbutilsjpa.testutils.CustomNamePropertyEntity;
+import com.moandjiezana.dbutilsjpa.testutils.EntityWithRelations;
+import com.moandjiezana.dbutilsjpa.testutils.NonUpdatableEntity;
+
+import org.junit.Test;
+
+public class EntityMetadataTest {
+
+  @Test
+  public void should_build_metadata_once_per_class() {
+    assertSame(EntityMetadata.of(NonUpdatableEntity.class), EntityMetadata.of(NonUpdatableEntity.class));
+  }
+
+  @Test
+  public void should_separate_insertable_and_updatable_columns() {
+    EntityMetadata metadata = EntityMetadata.of(NonUpdatableEntity.class);
+
+    assertArrayEquals(new String[] { "name", "notUpdated" }, metadata.getInsertableColumnNames());
+    assertArrayEquals(new String[] { "name", "notInserted" }, metadata.getUpdatableColumnNames());
+  }
+
+  @Test
+  public void should_use_property_annotations() {
+    EntityMetadata metadata = EntityMetadata.of(CustomNamePropertyEntity.class);
+
+    assertEquals("myTableName", metadata.getTableName());
+    assertEquals("customNameId", metadata.getIdColumnName());
+    assertArrayEquals(new String[] { "customDateColumn" }, metadata.getUpdatableColumnNames());
+  }
+
+  @Test
+  public void should_exclude_relations_from_columns() {
+    EntityMetadata metadata = EntityMetadata.of(EntityWithRelations.class);
+
+    assertArrayEquals(new String[] { "name" }, metadata.getUpdatableColumnNames());
+    assertEquals(3, metadata.getRelations().length);
+  }
+}
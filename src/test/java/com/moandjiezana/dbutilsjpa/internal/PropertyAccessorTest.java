@@ -0,0 +1,34 @@
+package com.moandjiezana.dbutilsjpa.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import com.moandjiezana.dbutilsjpa.testutils.MultiplePropertyEntity;
+import com.moandjiezana.dbutilsjpa.testutils.SimplePropertyEntity;
+
+import org.junit.Test;
+
+public class PropertyAccessorTest {
+
+  @Test
+  public void should_set_primitive_field() throws Exception {
+    PropertyAccessor accessor = PropertyAccessor.forField(MultiplePropertyEntity.class.getDeclaredField("age"));
+    MultiplePropertyEntity entity = new MultiplePropertyEntity();
+
+    accessor.setInt(entity, 42);
+
+    assertEquals(42, entity.age);
+    assertEquals(Integer.valueOf(42), accessor.get(entity));
+  }
+
+  @Test
+  public void should_use_getter_and_setter() throws Exception {
+    PropertyAccessor accessor = PropertyAccessor.forMethods(SimplePropertyEntity.class.getMethod("getId"), SimplePropertyEntity.class.getMethod("setId", Long.class));
+    SimplePropertyEntity entity = new SimplePropertyEntity();
+
+    accessor.set(entity, 3L);
+
+    assertEquals(Long.valueOf(3), entity.getId());
+    assertEquals(Long.valueOf(3), accessor.get(entity));
+    assertEquals(Long.class, accessor.getType());
+  }
+}
@@ -0,0 +1,13 @@
+package com.moandjiezana.dbutilsjpa.testutils;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class ArrayEntity {
+
+  @Id
+  public Long id;
+  public int[] scores;
+  public String[] tags;
+}
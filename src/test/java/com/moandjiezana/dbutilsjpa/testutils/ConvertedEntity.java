@@ -0,0 +1,43 @@
+package com.moandjiezana.dbutilsjpa.testutils;
+
+import java.util.UUID;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+
+@Entity
+public class ConvertedEntity {
+
+  public static class YesNoConverter implements AttributeConverter<Boolean, String> {
+    @Override
+    public String convertToDatabaseColumn(Boolean attribute) {
+      return attribute != null ? (attribute ? "Y" : "N") : null;
+    }
+
+    @Override
+    public Boolean convertToEntityAttribute(String dbData) {
+      return dbData != null ? Boolean.valueOf("Y".equals(dbData)) : null;
+    }
+  }
+
+  @Id
+  public Long id;
+
+  @Enumerated(EnumType.ORDINAL)
+  public EnumEntity.SomeEnum ordinal;
+
+  @Enumerated(EnumType.STRING)
+  public EnumEntity.SomeEnum name;
+
+  public UUID uuid;
+
+  @Convert(converter = YesNoConverter.class)
+  public Boolean active;
+
+  @Convert(disableConversion = true)
+  public String code;
+}
@@ -0,0 +1,22 @@
+package com.moandjiezana.dbutilsjpa.testutils;
+
+import com.moandjiezana.dbutilsjpa.LazyReference;
+
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+
+@Entity
+public class EntityWithLazyJoin {
+
+  @Id
+  public Long id;
+
+  @ManyToOne @JoinColumn(name = "simple_id")
+  public LazyReference<SimpleEntity> simple;
+
+  @ManyToOne(fetch = FetchType.LAZY) @JoinColumn(name = "multiple_id")
+  public MultiplePropertyEntity multiple;
+}
@@ -0,0 +1,15 @@
+package com.moandjiezana.dbutilsjpa.testutils;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class IdOnlyEntity {
+
+  @Id
+  private Long id;
+
+  public Long getId() {
+    return id;
+  }
+}
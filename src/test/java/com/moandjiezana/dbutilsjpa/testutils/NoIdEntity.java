@@ -0,0 +1,17 @@
+package com.moandjiezana.dbutilsjpa.testutils;
+
+import javax.persistence.Entity;
+
+@Entity
+public class NoIdEntity {
+
+  private String name;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+}
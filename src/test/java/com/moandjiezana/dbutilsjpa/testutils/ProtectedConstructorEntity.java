@@ -0,0 +1,13 @@
+package com.moandjiezana.dbutilsjpa.testutils;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class ProtectedConstructorEntity {
+
+  @Id
+  public Long id;
+
+  protected ProtectedConstructorEntity() {}
+}
@@ -0,0 +1,19 @@
+package com.moandjiezana.dbutilsjpa.testutils;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class TemporalEntity {
+
+  @Id
+  public Long id;
+
+  public Timestamp createdAt;
+  public Date startDate;
+  public Time startTime;
+}